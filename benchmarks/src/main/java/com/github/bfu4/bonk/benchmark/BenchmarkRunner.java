@@ -0,0 +1,57 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.bfu4.bonk.benchmark;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * BenchmarkRunner - Runs the benchmarks like JMH's own main, but always with the gc profiler,
+ * so allocation rates are reported next to the latencies
+ */
+public final class BenchmarkRunner {
+
+   private BenchmarkRunner() { }
+
+   public static void main(String[] args) throws Exception {
+      CommandLineOptions options = new CommandLineOptions(args);
+      if (options.shouldHelp() || options.shouldList() || options.shouldListWithParams() || options.shouldListProfilers()) {
+         Main.main(args);
+         return;
+      }
+
+      OptionsBuilder builder = new OptionsBuilder();
+      builder.parent(options);
+      boolean profiled = options.getProfilers().stream().anyMatch(
+         profiler -> profiler.getKlass().equals("gc") || profiler.getKlass().equals(GCProfiler.class.getName())
+      );
+      if (!profiled) builder.addProfiler(GCProfiler.class);
+      new Runner(builder.build()).run();
+   }
+
+}
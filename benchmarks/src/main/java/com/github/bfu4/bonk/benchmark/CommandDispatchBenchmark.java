@@ -0,0 +1,149 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.bfu4.bonk.benchmark;
+
+import com.github.bfu4.bonk.benchmark.stub.BenchmarkPlugin;
+import com.github.bfu4.bonk.benchmark.stub.StubSender;
+import com.github.bfu4.bonk.benchmark.stub.StubServer;
+import com.github.bfu4.bonk.command.CommandBase;
+import com.github.bfu4.bonk.command.Permission;
+import com.github.bfu4.bonk.command.Subcommand;
+import com.github.bfu4.bonk.player.BasePlayer;
+import org.bukkit.Server;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CommandDispatchBenchmark - {@link CommandBase#onCommand} and {@link CommandBase#onTabComplete}
+ * through a chain of nested subcommands
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CommandDispatchBenchmark {
+
+   /**
+    * Amount of subcommands below the root command.
+    */
+   @Param({ "0", "4" })
+   public int depth;
+
+   /**
+    * Amount of tabbable arguments of the deepest command.
+    */
+   @Param({ "10", "10000" })
+   public int tabArgs;
+
+   private StubSender sender;
+   private CommandBase root;
+   private String[] commandArgs;
+   private String[] tabCompleteArgs;
+
+   @Setup(Level.Trial)
+   public void setup() throws Exception {
+      Server server = StubServer.create();
+      BenchmarkPlugin plugin = new BenchmarkPlugin(server, Files.createTempDirectory("bonk-commands").toFile());
+      sender = new StubSender(server, "bfu4");
+
+      root = new RootCommand(plugin);
+      CommandBase deepest = root;
+      for (int i = 0; i < depth; i++) {
+         CommandBase sub = new NestedCommand(plugin);
+         deepest.addSubcommand("sub", sub);
+         deepest = sub;
+      }
+      for (int i = 0; i < tabArgs; i++) {
+         deepest.addValidArgs("candidate" + i);
+      }
+
+      commandArgs = new String[depth + 2];
+      tabCompleteArgs = new String[depth + 1];
+      for (int i = 0; i < depth; i++) {
+         commandArgs[i] = "sub";
+         tabCompleteArgs[i] = "sub";
+      }
+      commandArgs[depth] = "first";
+      commandArgs[depth + 1] = "second";
+      // Narrows down to roughly one in ten candidates
+      tabCompleteArgs[depth] = "candidate1";
+   }
+
+   @Benchmark
+   public boolean onCommand() {
+      return root.onCommand(sender, null, "bench", commandArgs);
+   }
+
+   @Benchmark
+   public List<String> onTabComplete() {
+      return root.onTabComplete(sender, null, "bench", tabCompleteArgs);
+   }
+
+   @Permission("bonk.benchmark")
+   public static class RootCommand extends CommandBase {
+
+      public RootCommand(BenchmarkPlugin plugin) {
+         super("bench", plugin);
+      }
+
+      @Override
+      public void execute(BasePlayer user, String[] args) {
+         user.sendMessage(args[0]);
+      }
+
+   }
+
+   @Subcommand
+   @Permission("bonk.benchmark.sub")
+   public static class NestedCommand extends CommandBase {
+
+      public NestedCommand(BenchmarkPlugin plugin) {
+         super("sub", plugin);
+      }
+
+      @Override
+      public void execute(BasePlayer user, String[] args) {
+         user.sendMessage(args[0]);
+      }
+
+   }
+
+}
@@ -0,0 +1,87 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.bfu4.bonk.benchmark;
+
+import com.github.bfu4.bonk.utility.ConcurrentLimitedList;
+import com.github.bfu4.bonk.utility.LimitedList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ConcurrentLimitedListBenchmark - many writers on {@link LimitedList} vs {@link ConcurrentLimitedList}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ConcurrentLimitedListBenchmark {
+
+   private static final Object ELEMENT = new Object();
+
+   private LimitedList<Object> locked;
+   private ConcurrentLimitedList<Object> concurrent;
+
+   @Setup(Level.Trial)
+   public void setup() {
+      locked = new LimitedList<>(1024);
+      concurrent = new ConcurrentLimitedList<>(1024);
+   }
+
+   @Benchmark
+   public void lockedAdd() {
+      locked.add(ELEMENT);
+   }
+
+   @Benchmark
+   public void concurrentAdd() {
+      concurrent.add(ELEMENT);
+   }
+
+   /**
+    * Snapshot taken while the other threads keep writing.
+    */
+   @Benchmark
+   @Threads(1)
+   public List<Object> concurrentSnapshot() {
+      return concurrent.snapshot();
+   }
+
+}
@@ -0,0 +1,110 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.bfu4.bonk.benchmark;
+
+import com.github.bfu4.bonk.benchmark.stub.BenchmarkPlugin;
+import com.github.bfu4.bonk.benchmark.stub.StubServer;
+import com.github.bfu4.bonk.file.IntKey;
+import com.github.bfu4.bonk.file.StringKey;
+import com.github.bfu4.bonk.file.YamlFile;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ConfigKeyBenchmark - Reading nested values through the configuration versus through cached keys
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConfigKeyBenchmark {
+
+   private static final String INT_PATH = "settings.limits.homes.max";
+   private static final String STRING_PATH = "settings.messages.welcome";
+
+   private File dataFolder;
+   private YamlFile file;
+   private IntKey intKey;
+   private StringKey stringKey;
+
+   @Setup(Level.Trial)
+   public void setup() throws IOException {
+      dataFolder = Files.createTempDirectory("bonk-keys").toFile();
+      YamlConfiguration configuration = new YamlConfiguration();
+      configuration.set(INT_PATH, 5);
+      configuration.set(STRING_PATH, "&aWelcome!");
+      configuration.save(new File(dataFolder, "bench.yml"));
+
+      file = new YamlFile(new BenchmarkPlugin(StubServer.create(), dataFolder), "bench");
+      file.reload();
+      intKey = file.intKey(INT_PATH, 0);
+      stringKey = file.stringKey(STRING_PATH, "");
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() {
+      new File(dataFolder, "bench.yml").delete();
+      dataFolder.delete();
+   }
+
+   @Benchmark
+   public int intFromConfiguration() {
+      return file.getConfiguration().getInt(INT_PATH);
+   }
+
+   @Benchmark
+   public int intFromKey() {
+      return intKey.get();
+   }
+
+   @Benchmark
+   public String stringFromConfiguration() {
+      return file.getConfiguration().getString(STRING_PATH);
+   }
+
+   @Benchmark
+   public String stringFromKey() {
+      return stringKey.get();
+   }
+
+}
@@ -0,0 +1,135 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.bfu4.bonk.benchmark;
+
+import com.github.bfu4.bonk.utility.LimitedDoubleList;
+import com.github.bfu4.bonk.utility.LimitedList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LimitedListBenchmark - {@link LimitedList} and its primitive variants
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LimitedListBenchmark {
+
+   @Param({ "100", "10000" })
+   public int size;
+
+   private LimitedList<Integer> list;
+   private LimitedDoubleList doubles;
+
+   /**
+    * Values boxed up front, so boxing doesn't show up in the measurements.
+    */
+   private Integer[] values;
+   private int cursor;
+   private double sample;
+
+   @Setup(Level.Trial)
+   public void setup() {
+      values = new Integer[size * 2];
+      for (int i = 0; i < values.length; i++) {
+         values[i] = i;
+      }
+      list = new LimitedList<>(size);
+      doubles = new LimitedDoubleList(size);
+      for (int i = 0; i < size; i++) {
+         list.add(values[i]);
+         doubles.add(i);
+      }
+   }
+
+   private Integer next() {
+      Integer value = values[cursor];
+      if (++cursor == values.length) cursor = 0;
+      return value;
+   }
+
+   /**
+    * Add to a full list, evicting the oldest element.
+    */
+   @Benchmark
+   public void add() {
+      list.add(next());
+   }
+
+   /**
+    * Remove an element from the middle of the list and add it back to keep the list full.
+    */
+   @Benchmark
+   public void removeAndAdd() {
+      Integer middle = list.get(size / 2);
+      list.remove(middle);
+      list.add(middle);
+   }
+
+   /**
+    * Worst case lookup of the newest element.
+    */
+   @Benchmark
+   public int indexOf() {
+      return list.indexOf(list.get(size - 1));
+   }
+
+   /**
+    * Average of the list by scanning and unboxing every element.
+    */
+   @Benchmark
+   public double boxedMean() {
+      double sum = 0;
+      for (int i = 0; i < list.size(); i++) {
+         sum += list.get(i);
+      }
+      return sum / list.size();
+   }
+
+   /**
+    * Add a sample to a full {@link LimitedDoubleList} and read its running mean.
+    */
+   @Benchmark
+   public double primitiveAddAndMean() {
+      doubles.add(sample++);
+      return doubles.getMean();
+   }
+
+}
@@ -0,0 +1,95 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.bfu4.bonk.benchmark;
+
+import com.github.bfu4.bonk.PluginBase;
+import com.github.bfu4.bonk.benchmark.stub.StubSender;
+import com.github.bfu4.bonk.benchmark.stub.StubServer;
+import com.github.bfu4.bonk.player.BasePlayer;
+import com.github.bfu4.bonk.player.MessageTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MessageBenchmark - {@link BasePlayer#sendFormattedMessage(String)} versus precompiled {@link MessageTemplate}s
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageBenchmark {
+
+   private StubSender sender;
+   private BasePlayer player;
+   private MessageTemplate constant;
+   private MessageTemplate parameterized;
+
+   @Setup(Level.Trial)
+   public void setup() {
+      PluginBase.COLORED_PREFIX = "&8[&dBONK&8]";
+      sender = new StubSender(StubServer.create(), "bfu4");
+      player = new BasePlayer(sender);
+      constant = MessageTemplate.prefixed("&cInsufficient permission!");
+      parameterized = MessageTemplate.prefixed("&a{player} &7paid you &e{amount} &7coins.");
+   }
+
+   @Benchmark
+   public String sendFormattedMessage() {
+      player.sendFormattedMessage("&cInsufficient permission!");
+      return sender.getLastMessage();
+   }
+
+   @Benchmark
+   public String sendConstantTemplate() {
+      constant.send(player);
+      return sender.getLastMessage();
+   }
+
+   @Benchmark
+   public String sendFormattedPlaceholders() {
+      player.sendFormattedMessage("&abfu4 &7paid you &e" + 250 + " &7coins.");
+      return sender.getLastMessage();
+   }
+
+   @Benchmark
+   public String sendParameterizedTemplate() {
+      parameterized.send(player, "bfu4", 250);
+      return sender.getLastMessage();
+   }
+
+}
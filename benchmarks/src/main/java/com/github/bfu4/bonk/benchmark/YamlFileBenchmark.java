@@ -0,0 +1,115 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.bfu4.bonk.benchmark;
+
+import com.github.bfu4.bonk.benchmark.stub.BenchmarkPlugin;
+import com.github.bfu4.bonk.benchmark.stub.StubServer;
+import com.github.bfu4.bonk.file.FileIO;
+import com.github.bfu4.bonk.file.YamlFile;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * YamlFileBenchmark - {@link YamlFile#reload()}, with and without snapshot, and {@link YamlFile#save()} on large files
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class YamlFileBenchmark {
+
+   /**
+    * Amount of keys in the file, spread over sections of 100 keys.
+    */
+   @Param({ "1000", "50000" })
+   public int keys;
+
+   /**
+    * Whether reloads load the binary snapshot instead of parsing the yaml.
+    */
+   @Param({ "false", "true" })
+   public boolean snapshot;
+
+   private File dataFolder;
+   private YamlFile file;
+
+   @Setup(Level.Trial)
+   public void setup() throws IOException {
+      dataFolder = Files.createTempDirectory("bonk-yaml").toFile();
+      YamlConfiguration configuration = new YamlConfiguration();
+      for (int i = 0; i < keys; i++) {
+         configuration.set("section" + (i / 100) + ".key" + i, "value " + i);
+      }
+      configuration.save(new File(dataFolder, "bench.yml"));
+
+      file = new YamlFile(new BenchmarkPlugin(StubServer.create(), dataFolder), "bench");
+      if (snapshot) file.enableSnapshot();
+      file.reload();
+      // File work runs in order, so this waits for the snapshot written by the first load
+      FileIO.run(() -> { }).join();
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() {
+      File[] files = dataFolder.listFiles();
+      if (files != null) {
+         for (File child : files) {
+            child.delete();
+         }
+      }
+      dataFolder.delete();
+   }
+
+   @Benchmark
+   public YamlConfiguration reload() {
+      file.reload();
+      return file.getConfiguration();
+   }
+
+   @Benchmark
+   public void save() {
+      file.save();
+   }
+
+}
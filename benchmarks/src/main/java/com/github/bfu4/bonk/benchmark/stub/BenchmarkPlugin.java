@@ -0,0 +1,61 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.bfu4.bonk.benchmark.stub;
+
+import com.github.bfu4.bonk.PluginBase;
+import org.bukkit.Server;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.java.JavaPluginLoader;
+
+import java.io.File;
+
+/**
+ * BenchmarkPlugin - {@link PluginBase} running on a {@link StubServer}
+ */
+public class BenchmarkPlugin extends PluginBase {
+
+   /**
+    * Create a new plugin
+    *
+    * @param server server the plugin runs on
+    * @param dataFolder folder the plugin stores its files in
+    */
+   @SuppressWarnings("deprecation")
+   public BenchmarkPlugin(Server server, File dataFolder) {
+      super(
+         new JavaPluginLoader(server),
+         new PluginDescriptionFile("BONK-benchmarks", "1.0", BenchmarkPlugin.class.getName()),
+         dataFolder,
+         new File(dataFolder, "BONK-benchmarks.jar")
+      );
+   }
+
+   @Override
+   public void onEnable() { }
+
+   @Override
+   public void onDisable() { }
+
+}
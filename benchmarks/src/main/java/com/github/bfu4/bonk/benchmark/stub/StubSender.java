@@ -0,0 +1,131 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.bfu4.bonk.benchmark.stub;
+
+import org.bukkit.Server;
+import org.bukkit.command.CommandSender;
+import org.bukkit.permissions.Permission;
+import org.bukkit.permissions.PermissionAttachment;
+import org.bukkit.permissions.PermissionAttachmentInfo;
+import org.bukkit.plugin.Plugin;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * StubSender - {@link CommandSender} that swallows messages and has every permission
+ */
+public class StubSender implements CommandSender {
+
+   private final Server server;
+   private final String name;
+
+   private String lastMessage;
+   private long messages;
+
+   /**
+    * Create a new sender
+    *
+    * @param server server the sender is on
+    * @param name name of the sender
+    */
+   public StubSender(Server server, String name) {
+      this.server = server;
+      this.name = name;
+   }
+
+   /**
+    * Get the last message sent to this sender
+    *
+    * @return last message, or null if none was sent
+    */
+   public String getLastMessage() { return lastMessage; }
+
+   /**
+    * Get the amount of messages sent to this sender
+    *
+    * @return amount of messages
+    */
+   public long getMessages() { return messages; }
+
+   @Override
+   public void sendMessage(String message) {
+      lastMessage = message;
+      messages++;
+   }
+
+   @Override
+   public void sendMessage(String[] messages) {
+      for (String message : messages) {
+         sendMessage(message);
+      }
+   }
+
+   @Override
+   public Server getServer() { return server; }
+
+   @Override
+   public String getName() { return name; }
+
+   @Override
+   public boolean isPermissionSet(String name) { return true; }
+
+   @Override
+   public boolean isPermissionSet(Permission perm) { return true; }
+
+   @Override
+   public boolean hasPermission(String name) { return true; }
+
+   @Override
+   public boolean hasPermission(Permission perm) { return true; }
+
+   @Override
+   public PermissionAttachment addAttachment(Plugin plugin, String name, boolean value) { return null; }
+
+   @Override
+   public PermissionAttachment addAttachment(Plugin plugin) { return null; }
+
+   @Override
+   public PermissionAttachment addAttachment(Plugin plugin, String name, boolean value, int ticks) { return null; }
+
+   @Override
+   public PermissionAttachment addAttachment(Plugin plugin, int ticks) { return null; }
+
+   @Override
+   public void removeAttachment(PermissionAttachment attachment) { }
+
+   @Override
+   public void recalculatePermissions() { }
+
+   @Override
+   public Set<PermissionAttachmentInfo> getEffectivePermissions() { return Collections.emptySet(); }
+
+   @Override
+   public boolean isOp() { return true; }
+
+   @Override
+   public void setOp(boolean value) { }
+
+}
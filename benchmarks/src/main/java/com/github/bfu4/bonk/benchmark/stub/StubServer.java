@@ -0,0 +1,96 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.bfu4.bonk.benchmark.stub;
+
+import org.bukkit.Server;
+
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * StubServer - {@link Server} that does nothing, for running BONK outside of a server
+ */
+public final class StubServer {
+
+   private StubServer() { }
+
+   /**
+    * Create a server whose methods return null, false, 0 or empty collections, except for its logger.
+    * Bukkit interfaces it returns, like the plugin manager, are stubbed the same way.
+    *
+    * @return stubbed server
+    */
+   public static Server create() {
+      Logger logger = Logger.getLogger("BONK-benchmarks");
+      return (Server) Proxy.newProxyInstance(Server.class.getClassLoader(), new Class<?>[] { Server.class }, (proxy, method, args) -> {
+         switch (method.getName()) {
+            case "getLogger":
+               return logger;
+            case "getName":
+            case "getVersion":
+            case "getBukkitVersion":
+            case "toString":
+               return "StubServer";
+            case "hashCode":
+               return System.identityHashCode(proxy);
+            case "equals":
+               return proxy == args[0];
+            default:
+               return defaultValue(method.getReturnType());
+         }
+      });
+   }
+
+   private static Object stub(Class<?> type) {
+      return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+         switch (method.getName()) {
+            case "hashCode":
+               return System.identityHashCode(proxy);
+            case "equals":
+               return proxy == args[0];
+            default:
+               return defaultValue(method.getReturnType());
+         }
+      });
+   }
+
+   private static Object defaultValue(Class<?> type) {
+      if (type == Collection.class || type == List.class) return Collections.emptyList();
+      if (type.isInterface() && type.getName().startsWith("org.bukkit.")) return stub(type);
+      if (!type.isPrimitive() || type == void.class) return null;
+      if (type == boolean.class) return false;
+      if (type == char.class) return '\0';
+      if (type == byte.class) return (byte) 0;
+      if (type == short.class) return (short) 0;
+      if (type == int.class) return 0;
+      if (type == long.class) return 0L;
+      if (type == float.class) return 0F;
+      return 0D;
+   }
+
+}
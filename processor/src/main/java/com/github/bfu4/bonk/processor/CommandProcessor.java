@@ -0,0 +1,384 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.bfu4.bonk.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * CommandProcessor - Generates the command metadata tables and plugin.yml entries of a plugin at build time
+ * <p>
+ * For every package containing subclasses of CommandBase, a BonkCommandTable is generated holding
+ * their {@code @Permission}, {@code @Usage}, {@code @Subcommand} and {@code @Async} values, which
+ * CommandMetadata finds through a ServiceLoader instead of reading the annotations by reflection.
+ * Commands without {@code @Permission} fail the build. The processor only runs when a class uses one
+ * of these annotations, compiling a command without {@code @Permission} fails at runtime either way.
+ * <p>
+ * Commands annotated with {@code @CommandEntry} are also added to the plugin.yml in the class output.
+ * If the plugin.yml declares commands itself, it is left alone and missing entries are reported instead.
+ * Pass {@code -Abonk.pluginYml=false} to leave it alone entirely. The generated entries are always
+ * written to META-INF/bonk/commands.yml as well.
+ */
+@SupportedAnnotationTypes({
+   CommandProcessor.PERMISSION,
+   CommandProcessor.USAGE,
+   CommandProcessor.SUBCOMMAND,
+   CommandProcessor.ASYNC,
+   CommandProcessor.COMMAND_ENTRY
+})
+@SupportedOptions(CommandProcessor.PLUGIN_YML_OPTION)
+public class CommandProcessor extends AbstractProcessor {
+
+   static final String PLUGIN_YML_OPTION = "bonk.pluginYml";
+
+   private static final String COMMAND_BASE = "com.github.bfu4.bonk.command.CommandBase";
+   static final String PERMISSION = "com.github.bfu4.bonk.command.Permission";
+   static final String USAGE = "com.github.bfu4.bonk.command.Usage";
+   static final String SUBCOMMAND = "com.github.bfu4.bonk.command.Subcommand";
+   static final String ASYNC = "com.github.bfu4.bonk.command.Async";
+   static final String COMMAND_ENTRY = "com.github.bfu4.bonk.command.CommandEntry";
+
+   private static final String TABLE = "BonkCommandTable";
+   private static final String TABLE_SERVICE = "META-INF/services/com.github.bfu4.bonk.command.CommandMetadata$Table";
+   private static final String FRAGMENT = "META-INF/bonk/commands.yml";
+   private static final Pattern COMMANDS_SECTION = Pattern.compile("(?m)^commands:");
+
+   private Elements elements;
+   private Types types;
+   private Filer filer;
+   private Messager messager;
+
+   /**
+    * Generated tables, by qualified name.
+    */
+   private final List<String> tables = new ArrayList<>();
+
+   /**
+    * plugin.yml entries by command name.
+    */
+   private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+   @Override
+   public synchronized void init(ProcessingEnvironment processingEnv) {
+      super.init(processingEnv);
+      this.elements = processingEnv.getElementUtils();
+      this.types = processingEnv.getTypeUtils();
+      this.filer = processingEnv.getFiler();
+      this.messager = processingEnv.getMessager();
+   }
+
+   @Override
+   public SourceVersion getSupportedSourceVersion() { return SourceVersion.latestSupported(); }
+
+   @Override
+   public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+      // The annotations are BONK's own, claiming them keeps javac from reporting them as unprocessed
+      if (roundEnv.processingOver()) {
+         writeServices();
+         writeEntries();
+         return true;
+      }
+
+      TypeElement base = elements.getTypeElement(COMMAND_BASE);
+      if (base == null) return true;
+      TypeMirror baseType = types.erasure(base.asType());
+
+      Map<String, List<Command>> byPackage = new LinkedHashMap<>();
+      for (Element root : roundEnv.getRootElements()) {
+         collect(root, base, baseType, byPackage);
+      }
+      byPackage.forEach(this::writeTable);
+      return true;
+   }
+
+   private void collect(Element element, TypeElement base, TypeMirror baseType, Map<String, List<Command>> byPackage) {
+      if (element.getKind() != ElementKind.CLASS) return;
+      TypeElement type = (TypeElement) element;
+      for (Element enclosed : type.getEnclosedElements()) {
+         collect(enclosed, base, baseType, byPackage);
+      }
+      if (type.equals(base) || type.getModifiers().contains(Modifier.ABSTRACT)) return;
+      if (!types.isSubtype(types.erasure(type.asType()), baseType)) return;
+
+      AnnotationMirror permission = annotation(type, PERMISSION);
+      if (permission == null) {
+         messager.printMessage(Diagnostic.Kind.ERROR, "Command " + type.getQualifiedName() + " has no @Permission", type);
+         return;
+      }
+      AnnotationMirror usage = annotation(type, USAGE);
+      AnnotationMirror async = annotation(type, ASYNC);
+      Command command = new Command(
+         type,
+         (String) value(permission, "value"),
+         usage != null ? (String) value(usage, "value") : null,
+         annotation(type, SUBCOMMAND) != null,
+         async != null,
+         async != null ? (Integer) value(async, "maxConcurrent") : 0
+      );
+
+      AnnotationMirror entry = annotation(type, COMMAND_ENTRY);
+      if (entry != null) addEntry(command, entry);
+
+      if (!isAccessible(type)) {
+         // The generated table can't name it, so it's read by reflection at runtime
+         messager.printMessage(Diagnostic.Kind.NOTE, "Command " + type.getQualifiedName() + " is private and left out of the command table", type);
+         return;
+      }
+      String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+      byPackage.computeIfAbsent(packageName, name -> new ArrayList<>()).add(command);
+   }
+
+   private void addEntry(Command command, AnnotationMirror entry) {
+      String name = (String) value(entry, "value");
+      if (command.subcommand) {
+         messager.printMessage(Diagnostic.Kind.WARNING, "Subcommand " + command.type.getQualifiedName() + " can't have a plugin.yml entry, ignoring @CommandEntry", command.type);
+         return;
+      }
+      if (entries.containsKey(name)) {
+         messager.printMessage(Diagnostic.Kind.ERROR, "Command name " + name + " is used by " + entries.get(name).command.type.getQualifiedName() + " already", command.type);
+         return;
+      }
+      List<String> aliases = new ArrayList<>();
+      for (Object alias : (List<?>) value(entry, "aliases")) {
+         aliases.add((String) ((AnnotationValue) alias).getValue());
+      }
+      entries.put(name, new Entry(command, name, (String) value(entry, "description"), aliases));
+   }
+
+   private void writeTable(String packageName, List<Command> commands) {
+      String simpleName = TABLE + (tables.isEmpty() ? "" : String.valueOf(tables.size()));
+      String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+      Element[] origins = new Element[commands.size()];
+      for (int i = 0; i < origins.length; i++) {
+         origins[i] = commands.get(i).type;
+      }
+
+      StringBuilder source = new StringBuilder();
+      if (!packageName.isEmpty()) source.append("package ").append(packageName).append(";\n\n");
+      source.append("/**\n")
+         .append(" * Metadata of the commands in this package, generated by the BONK-processor, do not edit\n")
+         .append(" */\n")
+         .append("public final class ").append(simpleName).append(" implements com.github.bfu4.bonk.command.CommandMetadata.Table {\n\n")
+         .append("   @Override\n")
+         .append("   public void register(java.util.function.BiConsumer<Class<? extends com.github.bfu4.bonk.command.CommandBase>, com.github.bfu4.bonk.command.CommandMetadata> registry) {\n");
+      for (Command command : commands) {
+         source.append("      registry.accept(").append(command.type.getQualifiedName()).append(".class, new com.github.bfu4.bonk.command.CommandMetadata(")
+            .append(literal(command.permission)).append(", ")
+            .append(literal(command.usage)).append(", ")
+            .append(command.subcommand).append(", ")
+            .append(command.async).append(", ")
+            .append(command.maxConcurrent).append("));\n");
+      }
+      source.append("   }\n\n}\n");
+
+      try (Writer writer = filer.createSourceFile(qualifiedName, origins).openWriter()) {
+         writer.write(source.toString());
+         tables.add(qualifiedName);
+      } catch (IOException e) {
+         messager.printMessage(Diagnostic.Kind.ERROR, "Failed to write " + qualifiedName + ": " + e.getMessage());
+      }
+   }
+
+   private void writeServices() {
+      if (tables.isEmpty()) return;
+      try (Writer writer = filer.createResource(StandardLocation.CLASS_OUTPUT, "", TABLE_SERVICE).openWriter()) {
+         for (String table : tables) {
+            writer.write(table + "\n");
+         }
+      } catch (IOException e) {
+         messager.printMessage(Diagnostic.Kind.ERROR, "Failed to write " + TABLE_SERVICE + ": " + e.getMessage());
+      }
+   }
+
+   private void writeEntries() {
+      if (entries.isEmpty()) return;
+      StringBuilder yaml = new StringBuilder("commands:\n");
+      for (Entry entry : entries.values()) {
+         yaml.append("  ").append(quote(entry.name)).append(":\n");
+         if (!entry.description.isEmpty()) yaml.append("    description: ").append(quote(entry.description)).append('\n');
+         yaml.append("    permission: ").append(quote(entry.command.permission)).append('\n');
+         if (!entry.aliases.isEmpty()) {
+            yaml.append("    aliases: [");
+            for (int i = 0; i < entry.aliases.size(); i++) {
+               if (i > 0) yaml.append(", ");
+               yaml.append(quote(entry.aliases.get(i)));
+            }
+            yaml.append("]\n");
+         }
+      }
+
+      try (Writer writer = filer.createResource(StandardLocation.CLASS_OUTPUT, "", FRAGMENT).openWriter()) {
+         writer.write(yaml.toString());
+      } catch (IOException e) {
+         messager.printMessage(Diagnostic.Kind.ERROR, "Failed to write " + FRAGMENT + ": " + e.getMessage());
+      }
+      if (!"false".equalsIgnoreCase(processingEnv.getOptions().get(PLUGIN_YML_OPTION))) mergePluginYml(yaml.toString());
+   }
+
+   private void mergePluginYml(String commands) {
+      String pluginYml;
+      try {
+         FileObject existing = filer.getResource(StandardLocation.CLASS_OUTPUT, "", "plugin.yml");
+         pluginYml = existing.getCharContent(true).toString();
+      } catch (IOException e) {
+         messager.printMessage(Diagnostic.Kind.WARNING, "No plugin.yml found, the command entries are only in " + FRAGMENT);
+         return;
+      }
+
+      if (COMMANDS_SECTION.matcher(pluginYml).find()) {
+         // Declared by hand, only check it covers every command
+         for (Entry entry : entries.values()) {
+            Matcher declared = Pattern.compile("(?m)^[ \\t]+[\"']?" + Pattern.quote(entry.name) + "[\"']?[ \\t]*:").matcher(pluginYml);
+            if (!declared.find()) {
+               messager.printMessage(Diagnostic.Kind.WARNING, "plugin.yml declares its own commands, but not " + entry.name, entry.command.type);
+            }
+         }
+         return;
+      }
+
+      StringBuilder merged = new StringBuilder(pluginYml);
+      if (merged.length() > 0 && merged.charAt(merged.length() - 1) != '\n') merged.append('\n');
+      merged.append(commands);
+      try (Writer writer = filer.createResource(StandardLocation.CLASS_OUTPUT, "", "plugin.yml").openWriter()) {
+         writer.write(merged.toString());
+      } catch (IOException e) {
+         messager.printMessage(Diagnostic.Kind.ERROR, "Failed to add the commands to plugin.yml: " + e.getMessage());
+      }
+   }
+
+   private AnnotationMirror annotation(TypeElement type, String name) {
+      for (AnnotationMirror mirror : type.getAnnotationMirrors()) {
+         TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+         if (annotationType.getQualifiedName().contentEquals(name)) return mirror;
+      }
+      return null;
+   }
+
+   private Object value(AnnotationMirror mirror, String name) {
+      for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value : elements.getElementValuesWithDefaults(mirror).entrySet()) {
+         if (value.getKey().getSimpleName().contentEquals(name)) return value.getValue().getValue();
+      }
+      return null;
+   }
+
+   private static boolean isAccessible(TypeElement type) {
+      for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()) {
+         if (element.getModifiers().contains(Modifier.PRIVATE)) return false;
+      }
+      return true;
+   }
+
+   private static String literal(String value) {
+      if (value == null) return "null";
+      StringBuilder literal = new StringBuilder("\"");
+      for (int i = 0; i < value.length(); i++) {
+         char c = value.charAt(i);
+         switch (c) {
+            case '"': literal.append("\\\""); break;
+            case '\\': literal.append("\\\\"); break;
+            case '\n': literal.append("\\n"); break;
+            case '\r': literal.append("\\r"); break;
+            case '\t': literal.append("\\t"); break;
+            default:
+               if (c < 0x20 || c > 0x7e) {
+                  literal.append(String.format("\\u%04x", (int) c));
+               } else {
+                  literal.append(c);
+               }
+         }
+      }
+      return literal.append('"').toString();
+   }
+
+   private static String quote(String value) {
+      // Double quoted yaml scalars share Java's escapes for everything used here
+      return literal(value);
+   }
+
+   private static final class Command {
+
+      private final TypeElement type;
+      private final String permission;
+      private final String usage;
+      private final boolean subcommand;
+      private final boolean async;
+      private final int maxConcurrent;
+
+      private Command(TypeElement type, String permission, String usage, boolean subcommand, boolean async, int maxConcurrent) {
+         this.type = type;
+         this.permission = permission;
+         this.usage = usage;
+         this.subcommand = subcommand;
+         this.async = async;
+         this.maxConcurrent = maxConcurrent;
+      }
+
+   }
+
+   private static final class Entry {
+
+      private final Command command;
+      private final String name;
+      private final String description;
+      private final List<String> aliases;
+
+      private Entry(Command command, String name, String description, List<String> aliases) {
+         this.command = command;
+         this.name = name;
+         this.description = description;
+         this.aliases = aliases;
+      }
+
+   }
+
+}
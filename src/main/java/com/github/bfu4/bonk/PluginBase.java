@@ -24,15 +24,23 @@
 
 package com.github.bfu4.bonk;
 
-import org.bukkit.Bukkit;
+import com.github.bfu4.bonk.listener.ListenerProfiler;
+import com.github.bfu4.bonk.listener.ListenerRegistry;
+import com.github.bfu4.bonk.player.PlayerRegistry;
+import com.github.bfu4.bonk.scheduler.TickScheduler;
 import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginDescriptionFile;
 import org.bukkit.plugin.RegisteredListener;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
 
+import java.io.File;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * PluginBase - Base for Plugins
@@ -50,7 +58,36 @@ public abstract class PluginBase extends JavaPlugin {
    /**
     * Organized listeners for the plugin.
     */
-   private static final HashMap<String, Listener> listeners = new HashMap<>();
+   private final ListenerRegistry listeners = new ListenerRegistry(this);
+
+   /**
+    * Wrappers of the online players, created on first use.
+    */
+   private volatile PlayerRegistry playerRegistry;
+
+   /**
+    * Scheduler spreading work over ticks, created on first use.
+    */
+   private volatile TickScheduler tickScheduler;
+
+   /**
+    * Create the plugin, used by the server when loading it.
+    */
+   public PluginBase() {
+      super();
+   }
+
+   /**
+    * Create the plugin outside of a running server, for tests and benchmarks.
+    *
+    * @param loader loader of the plugin
+    * @param description description of the plugin
+    * @param dataFolder folder the plugin stores its files in
+    * @param file jar file of the plugin
+    */
+   protected PluginBase(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder, File file) {
+      super(loader, description, dataFolder, file);
+   }
 
    /**
     * Plugin tasks when enabled.
@@ -64,12 +101,74 @@ public abstract class PluginBase extends JavaPlugin {
    @Override
    public abstract void onDisable();
 
+   /**
+    * Get the registry of online players, starting it on first use.
+    * The registry stops when the plugin is disabled, and a new one is started if it's asked for
+    * again once the plugin is enabled. Until then it hands out new wrappers on every call.
+    *
+    * @return player registry
+    */
+   public PlayerRegistry getPlayerRegistry() {
+      PlayerRegistry registry = playerRegistry;
+      if (registry != null && registry.isRunning()) return registry;
+      synchronized (this) {
+         // A disabled plugin can't register listeners
+         if (playerRegistry == null || !playerRegistry.isRunning() && isEnabled()) {
+            registry = new PlayerRegistry(this);
+            if (isEnabled()) registry.start();
+            playerRegistry = registry;
+         }
+         return playerRegistry;
+      }
+   }
+
+   /**
+    * Get the scheduler running work on the main thread within a budget per tick, starting it on first use.
+    * The budget is 5 milliseconds per tick until changed with {@link TickScheduler#setBudget(long, TimeUnit)}.
+    * The scheduler stops when the plugin is disabled, dropping the work still queued, and a new one
+    * is started if it's asked for again once the plugin is enabled. Until then it rejects new work.
+    *
+    * @return tick scheduler
+    */
+   public TickScheduler getTickScheduler() {
+      TickScheduler scheduler = tickScheduler;
+      if (scheduler != null && scheduler.isRunning()) return scheduler;
+      synchronized (this) {
+         // A disabled plugin can't schedule tasks, its stopped scheduler rejects the work instead
+         if (tickScheduler == null || !tickScheduler.isRunning() && isEnabled()) {
+            scheduler = new TickScheduler(this, 5, TimeUnit.MILLISECONDS);
+            if (isEnabled()) scheduler.start();
+            tickScheduler = scheduler;
+         }
+         return tickScheduler;
+      }
+   }
+
+   /**
+    * Get the registry of the listeners registered through {@link PluginBase#registerListener(String, Listener, String...)}
+    *
+    * @return listener registry
+    */
+   public ListenerRegistry getListenerRegistry() { return listeners; }
+
+   /**
+    * Time the event handlers of the listeners registered from now on, see {@link ListenerProfiler}.
+    * Call this in {@link PluginBase#onEnable()} before registering listeners.
+    *
+    * @param budget time a handler may take before it's flagged
+    * @param unit unit of the budget
+    * @return profiler holding the recorded metrics
+    */
+   public ListenerProfiler enableListenerProfiling(long budget, TimeUnit unit) {
+      return listeners.enableProfiling(budget, unit);
+   }
+
    /**
     * Get the listener list
     *
-    * @return list of listeners
+    * @return unmodifiable copy of the listeners by name
     */
-   public static HashMap<String, Listener> getListenerList() { return listeners; }
+   public Map<String, Listener> getListenerList() { return listeners.getListeners(); }
 
    /**
     * Get listener instance by name
@@ -82,14 +181,14 @@ public abstract class PluginBase extends JavaPlugin {
    }
 
    /**
-    * Register a listener
+    * Register a listener, replacing the listener registered under the same name
     *
     * @param listenerName name of the listener
     * @param listener listener to register
+    * @param groups groups the listener belongs to, to unregister them together with {@link PluginBase#deregisterGroup(String)}
     */
-   public void registerListener(String listenerName, Listener listener) {
-      Bukkit.getPluginManager().registerEvents(listener, this);
-      listeners.put(listenerName, listener);
+   public void registerListener(String listenerName, Listener listener, String... groups) {
+      listeners.register(listenerName, listener, groups);
    }
 
    /**
@@ -108,6 +207,11 @@ public abstract class PluginBase extends JavaPlugin {
     * @return registered listener in respect to the instance
     */
    public RegisteredListener getRegisteredListener(Listener instance) {
+      if (listeners.contains(instance)) {
+         List<RegisteredListener> registered = listeners.getRegisteredListeners(instance);
+         return registered.isEmpty() ? null : registered.get(0);
+      }
+      // Registered without the registry
       return getRegisteredListeners().stream().filter(
          listener -> listener.getListener().equals(instance)
       ).findFirst().orElse(null);
@@ -117,19 +221,22 @@ public abstract class PluginBase extends JavaPlugin {
     * Get a registered listener by name registered as
     *
     * @param name name of the listener
-    * @return registered listener in respect to the name
+    * @return registered listener in respect to the name, null if there is no listener by that name
     */
    public RegisteredListener getRegisteredListener(String name) {
-      return getRegisteredListener(getListener(name));
+      Listener listener = getListener(name);
+      return listener != null ? getRegisteredListener(listener) : null;
    }
 
    /**
-    * Deregister a listener
+    * Deregister the listeners of a class
     *
     * @param listenerClass class of the listener to deregister
     * @param plugin plugin that the listener is registered to.
     */
    public void deregisterListener(Class<? extends Listener> listenerClass, Plugin plugin) {
+      if (plugin == this) listeners.unregisterClass(listenerClass);
+      // Listeners registered without the registry
       HandlerList.getRegisteredListeners(plugin).stream().forEach(listener -> {
          if (listener.getListener().getClass().equals(listenerClass)) {
             HandlerList.unregisterAll(listener.getListener());
@@ -137,4 +244,24 @@ public abstract class PluginBase extends JavaPlugin {
       });
    }
 
+   /**
+    * Deregister the listener registered under a name
+    *
+    * @param listenerName name of the listener
+    * @return true if a listener was deregistered
+    */
+   public boolean deregisterListener(String listenerName) {
+      return listeners.unregister(listenerName);
+   }
+
+   /**
+    * Deregister the listeners in a group
+    *
+    * @param group group of the listeners
+    * @return amount of listeners deregistered
+    */
+   public int deregisterGroup(String group) {
+      return listeners.unregisterGroup(group);
+   }
+
 }
@@ -0,0 +1,114 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.github.bfu4.bonk.command;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AsyncCommandPool - Bounded worker pool running {@link Async} commands
+ * <p>
+ * Both the amount of threads and the amount of queued executions are bounded. Once both are
+ * used up, {@link AsyncCommandPool#submit(Runnable)} refuses new work instead of piling it up,
+ * and the user is told to try again later.
+ */
+public class AsyncCommandPool {
+
+   private final ThreadPoolExecutor executor;
+
+   /**
+    * Create a new pool. Threads are only started once commands are submitted,
+    * and stop again after a minute without work.
+    *
+    * @param name name used for the worker threads
+    * @param threads max amount of commands running at once
+    * @param queueSize max amount of commands waiting for a thread
+    */
+   public AsyncCommandPool(String name, int threads, int queueSize) {
+      AtomicInteger count = new AtomicInteger();
+      this.executor = new ThreadPoolExecutor(
+         threads, threads, 60, TimeUnit.SECONDS,
+         new ArrayBlockingQueue<>(queueSize),
+         runnable -> {
+            Thread thread = new Thread(runnable, name + "-command-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+         },
+         new ThreadPoolExecutor.AbortPolicy()
+      );
+      this.executor.allowCoreThreadTimeOut(true);
+   }
+
+   /**
+    * Submit a command execution
+    *
+    * @param task execution to run
+    * @return false if the pool is saturated or shut down and the task was not accepted
+    */
+   public boolean submit(Runnable task) {
+      try {
+         executor.execute(task);
+         return true;
+      } catch (RejectedExecutionException e) {
+         return false;
+      }
+   }
+
+   /**
+    * Get the amount of executions currently running
+    *
+    * @return running executions
+    */
+   public int getActive() { return executor.getActiveCount(); }
+
+   /**
+    * Get the amount of executions waiting for a thread
+    *
+    * @return queued executions
+    */
+   public int getQueued() { return executor.getQueue().size(); }
+
+   /**
+    * Stop accepting commands and wait for the running ones to finish
+    *
+    * @param timeout max time to wait
+    * @param unit unit of the timeout
+    * @return true if all executions finished in time
+    */
+   public boolean shutdown(long timeout, TimeUnit unit) {
+      executor.shutdown();
+      try {
+         return executor.awaitTermination(timeout, unit);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         return false;
+      }
+   }
+
+}
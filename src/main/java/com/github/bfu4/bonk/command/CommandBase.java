@@ -31,22 +31,34 @@ import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabExecutor;
-import org.bukkit.util.StringUtil;
+import org.bukkit.scheduler.BukkitTask;
 import com.github.bfu4.bonk.PluginBase;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
 
 public abstract class CommandBase implements CommandExecutor, TabExecutor {
 
    private final PluginBase plugin;
    private final String identifier;
 
-   private final ArrayList<String> tabArgs;
+   private final CompletionIndex tabArgs;
    private final HashMap<String, CommandBase> subcommands;
 
+   private volatile int tabLimit;
+
+   private volatile CommandNode node;
+   private volatile AsyncCommandPool asyncPool;
+
+   /**
+    * Metrics by command path, kept across compiles so adding a subcommand doesn't reset them.
+    */
+   private final ConcurrentHashMap<String, CommandMetrics> metrics;
+
    /**
     * Create a new command
     *
@@ -56,8 +68,10 @@ public abstract class CommandBase implements CommandExecutor, TabExecutor {
    public CommandBase(String commandIdentifier, PluginBase plugin) {
       this.plugin = plugin;
       this.identifier = commandIdentifier;
-      this.tabArgs = new ArrayList<>();
+      this.tabArgs = new CompletionIndex();
       this.subcommands = new HashMap<>();
+      this.tabLimit = Integer.MAX_VALUE;
+      this.metrics = new ConcurrentHashMap<>();
    }
 
    /**
@@ -69,7 +83,7 @@ public abstract class CommandBase implements CommandExecutor, TabExecutor {
     */
    public CommandBase(String commandIdentifier, PluginBase plugin, String ... validArgs) {
       this(commandIdentifier, plugin);
-      tabArgs.addAll(Arrays.asList(validArgs));
+      tabArgs.add(validArgs);
    }
 
    /**
@@ -84,7 +98,7 @@ public abstract class CommandBase implements CommandExecutor, TabExecutor {
     *
     * @param args arguments that can be tabbed
     */
-   public void addValidArgs(String ... args) { tabArgs.addAll(Arrays.asList(args)); }
+   public void addValidArgs(String ... args) { tabArgs.add(args); }
 
    /**
     * Add a subcommand
@@ -95,22 +109,55 @@ public abstract class CommandBase implements CommandExecutor, TabExecutor {
    public void addSubcommand(String subcommandName, CommandBase subcommand) {
       subcommands.put(subcommandName, subcommand);
       tabArgs.add(subcommandName);
+      node = null;
    }
 
    /**
     * Get the valid arguments
     *
+    * @return copy of the tabbable arguments, in alphabetical order
+    * @deprecated changes to the returned list no longer reach the command, add and remove
+    *             arguments through {@link CommandBase#getCompletionIndex()} instead
+    */
+   @Deprecated
+   public ArrayList<String> getTabArgs() { return new ArrayList<>(tabArgs.getAll()); }
+
+   /**
+    * Get the index of valid arguments. Candidates that change at runtime (players, warps, ...)
+    * can be added to and removed from it directly, from any thread.
+    *
     * @return tabbable arguments
     */
-   public ArrayList<String> getTabArgs() { return tabArgs; }
+   public CompletionIndex getCompletionIndex() { return tabArgs; }
+
+   /**
+    * Set the max amount of suggestions returned on tab completion
+    *
+    * @param tabLimit max amount of suggestions
+    * @throws IllegalArgumentException if the limit is negative
+    */
+   public void setTabLimit(int tabLimit) {
+      if (tabLimit < 0) throw new IllegalArgumentException("Tab limit can't be negative: " + tabLimit);
+      this.tabLimit = tabLimit;
+   }
 
    public PluginBase getPlugin() { return plugin; }
 
-   public String getPermission() {
-      return getClass().getAnnotation(Permission.class).value();
-   }
+   /**
+    * Get the metadata read from the annotations of the command
+    *
+    * @return metadata
+    */
+   public CommandMetadata getMetadata() { return CommandMetadata.of(getClass()); }
+
+   /**
+    * Get the permission needed to run the command
+    *
+    * @return permission, null if the command has no {@link Permission}
+    */
+   public String getPermission() { return getMetadata().getPermission(); }
 
-   public boolean isSubcommand() { return getClass().getAnnotation(Subcommand.class) != null; }
+   public boolean isSubcommand() { return getMetadata().isSubcommand(); }
 
    /**
     * Execute the command
@@ -120,56 +167,90 @@ public abstract class CommandBase implements CommandExecutor, TabExecutor {
     */
    public abstract void execute(BasePlayer user, String[] args);
 
+   /**
+    * Compile this command and its subcommands into a dispatch tree, used until either changes.
+    * Subcommands changed after their parent was compiled require compiling the parent again.
+    *
+    * @return root node of this command
+    * @throws IllegalArgumentException if this command or a subcommand has no {@link Permission}
+    */
+   public CommandNode compile() {
+      CommandNode compiled = CommandNode.compile(this, asyncPool);
+      node = compiled;
+      return compiled;
+   }
+
+   /**
+    * Get the compiled dispatch tree of this command, compiling it if needed
+    *
+    * @return root node of this command
+    */
+   public CommandNode getNode() {
+      CommandNode compiled = node;
+      return compiled != null ? compiled : compile();
+   }
+
+   /**
+    * Get the metrics of this command under a path, creating them on first use
+    *
+    * @param path command path, e.g. "warp set"
+    * @return metrics
+    */
+   CommandMetrics getMetrics(String path) {
+      return metrics.computeIfAbsent(path, CommandMetrics::new);
+   }
+
+   /**
+    * Set the pool running this command and its subcommands if they are {@link Async}
+    *
+    * @param asyncPool pool, null to run them on the calling thread
+    */
+   void setAsyncPool(AsyncCommandPool asyncPool) {
+      this.asyncPool = asyncPool;
+      node = null;
+   }
+
+   /**
+    * Run a task on the main thread, for Bukkit API calls from {@link Async} commands
+    *
+    * @param task task to run
+    * @return scheduled task
+    */
+   protected BukkitTask runSync(Runnable task) {
+      return plugin.getServer().getScheduler().runTask(plugin, task);
+   }
+
+   /**
+    * Compute a value on the main thread, for Bukkit API calls from {@link Async} commands.
+    * Don't wait on the result from the main thread itself.
+    *
+    * @param task task to run
+    * @param <T> type of the result
+    * @return future completed with the result once the task ran
+    */
+   protected <T> Future<T> callSync(Callable<T> task) {
+      return plugin.getServer().getScheduler().callSyncMethod(plugin, task);
+   }
+
    @Override
    public boolean onCommand(CommandSender sender, Command command, String identifier, String[] args) {
-      BasePlayer user = new BasePlayer(sender);
-      CommandBase next = null;
-      if (args.length >= 1) {
-         next = getSubcommands().get(args[0].toLowerCase());
-      }
-      boolean nextIsSubcommand = next != null && next.isSubcommand();
-      String[] newArgs = new String[nextIsSubcommand ? args.length - 1 : args.length];
-      if (nextIsSubcommand)  {
-         System.arraycopy(args, 1, newArgs, 0, args.length - 1);
-      } else {
-         newArgs = args;
-      }
-      if (user.hasPermission(getPermission())) {
-         if (nextIsSubcommand) {
-            if (user.hasPermission(next.getPermission())) {
-               next.onCommand(sender, command, identifier, newArgs);
-            } else {
-               user.sendFormattedMessage("&cInsufficient permission!");
-            }
-         } else {
-            execute(user, newArgs);
-         }
-      } else {
-         user.sendFormattedMessage("&cInsufficient permission!");
-      }
+      getNode().dispatch(sender, args);
       return true;
    }
 
    @Override
    public List<String> onTabComplete(CommandSender sender, Command command, String identifier, String[] args) {
-      List<String> tabbableArgs = new ArrayList<>();
-      CommandBase cmd = null;
-      if (args.length > 0) {
-         cmd =  getSubcommands().get(args[0]);
-      }
+      if (args.length == 0) return tabArgs.complete("", tabLimit);
 
-      // Cycle through the subcommands to get the tab args.
-      if (args.length > 1) {
-         for (int i = 1; i < args.length; i ++) {
-            if (args[i].equals("\\s") || cmd == null) break;
-            CommandBase next = cmd.getSubcommands().get(args[i]);
-            if (next == null) break;
-            cmd = next;
-         }
+      // Cycle through the subcommands named before the argument being completed.
+      CommandNode node = getNode();
+      for (int i = 0; i < args.length - 1; i ++) {
+         CommandNode next = node.getChild(args[i]);
+         if (next == null) break;
+         node = next;
       }
-      return cmd != null
-         ? StringUtil.copyPartialMatches(args[args.length - 1], cmd.getTabArgs(), tabbableArgs)
-         : StringUtil.copyPartialMatches(args[args.length - 1], tabArgs, tabbableArgs);
+      CommandBase cmd = node.getCommand();
+      return cmd.getCompletionIndex().complete(args[args.length - 1], cmd.tabLimit);
    }
 
    /**
@@ -177,11 +258,7 @@ public abstract class CommandBase implements CommandExecutor, TabExecutor {
     *
     * @return usage
     */
-   public String getUsage() {
-      Usage usageAnnotation = getClass().getAnnotation(Usage.class);
-      if (usageAnnotation != null) return usageAnnotation.value();
-      return "&cIncorrect command usage.";
-   }
+   public String getUsage() { return getMetadata().getUsage(); }
 
    /**
     * Get the subcommands
@@ -27,16 +27,124 @@ package com.github.bfu4.bonk.command;
 
 import com.github.bfu4.bonk.PluginBase;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
 public class CommandManager {
 
    private final PluginBase plugin;
+   private final ConcurrentHashMap<String, CommandBase> commands;
+   private final AsyncCommandPool asyncPool;
 
+   /**
+    * Create a new command manager, running {@link Async} commands on up to half the
+    * available cores with room for 64 more waiting
+    *
+    * @param plugin plugin the commands belong to
+    */
    public CommandManager(PluginBase plugin) {
+      this(plugin, Math.max(2, Runtime.getRuntime().availableProcessors() / 2), 64);
+   }
+
+   /**
+    * Create a new command manager
+    *
+    * @param plugin plugin the commands belong to
+    * @param asyncThreads max amount of {@link Async} commands running at once
+    * @param asyncQueueSize max amount of {@link Async} commands waiting for a thread
+    */
+   public CommandManager(PluginBase plugin, int asyncThreads, int asyncQueueSize) {
       this.plugin = plugin;
+      this.commands = new ConcurrentHashMap<>();
+      this.asyncPool = new AsyncCommandPool(plugin.getName(), asyncThreads, asyncQueueSize);
    }
 
+   /**
+    * Register a command, compiling it and its subcommands into a dispatch tree
+    *
+    * @param base command to register
+    * @throws IllegalArgumentException if the command or a subcommand has no {@link Permission}
+    */
    public void register(CommandBase base) {
+      base.setAsyncPool(asyncPool);
+      base.compile();
+      commands.put(base.getName(), base);
       plugin.getServer().getPluginCommand(base.getName()).setExecutor(base);
    }
 
+   /**
+    * Get the dispatch tree of a registered command
+    *
+    * @param name name of the command
+    * @return root node of the command, or null if it isn't registered
+    */
+   public CommandNode getCommand(String name) {
+      CommandBase base = commands.get(name);
+      return base != null ? base.getNode() : null;
+   }
+
+   /**
+    * Get the dispatch trees of all registered commands
+    *
+    * @return root nodes of the commands
+    */
+   public Collection<CommandNode> getCommands() {
+      List<CommandNode> nodes = new ArrayList<>(commands.size());
+      commands.values().forEach(base -> nodes.add(base.getNode()));
+      return nodes;
+   }
+
+   /**
+    * Get the metrics of a command or subcommand
+    *
+    * @param path name of the command followed by the names of the subcommands, separated by spaces
+    * @return metrics, or null if there is no such command
+    */
+   public CommandMetrics getMetrics(String path) {
+      String[] names = path.trim().split(" +");
+      CommandNode node = getCommand(names[0]);
+      for (int i = 1; i < names.length && node != null; i++) {
+         node = node.getChild(names[i]);
+      }
+      return node != null ? node.getMetrics() : null;
+   }
+
+   /**
+    * Get the metrics of every registered command and subcommand
+    *
+    * @return metrics keyed by command path
+    */
+   public Map<String, CommandMetrics> getMetrics() {
+      Map<String, CommandMetrics> metrics = new LinkedHashMap<>();
+      getCommands().forEach(node -> collectMetrics(node, metrics));
+      return metrics;
+   }
+
+   private void collectMetrics(CommandNode node, Map<String, CommandMetrics> metrics) {
+      metrics.put(node.getMetrics().getPath(), node.getMetrics());
+      node.getChildren().values().forEach(child -> collectMetrics(child, metrics));
+   }
+
+   /**
+    * Get the pool running {@link Async} commands
+    *
+    * @return pool
+    */
+   public AsyncCommandPool getAsyncPool() { return asyncPool; }
+
+   /**
+    * Stop running {@link Async} commands, waiting up to 5 seconds for running ones to finish.
+    * Call this from {@link PluginBase#onDisable()}.
+    */
+   public void shutdown() {
+      if (!asyncPool.shutdown(5, TimeUnit.SECONDS)) {
+         plugin.getLogger().warning("Async commands did not finish in time!");
+      }
+   }
+
 }
\ No newline at end of file
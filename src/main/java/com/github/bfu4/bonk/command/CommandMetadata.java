@@ -0,0 +1,171 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.github.bfu4.bonk.command;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.WeakHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * CommandMetadata - The annotations of a command class, read once per class
+ * <p>
+ * Plugins compiled with the BONK-processor annotation processor contain a generated {@link Table}
+ * of these, so the annotations are never read by reflection. Classes missing from a table, for
+ * example when the processor isn't set up, are read by reflection instead, once.
+ */
+public final class CommandMetadata {
+
+   /**
+    * Usage of commands without {@link Usage}.
+    */
+   public static final String DEFAULT_USAGE = "&cIncorrect command usage.";
+
+   private static final ClassValue<CommandMetadata> METADATA = new ClassValue<CommandMetadata>() {
+      @Override
+      protected CommandMetadata computeValue(Class<?> type) {
+         CommandMetadata generated = tableOf(type.getClassLoader()).get(type.getName());
+         return generated != null ? generated : reflect(type);
+      }
+   };
+
+   /**
+    * Generated metadata by class name, per class loader. Names rather than classes are kept, so the loaders can still be collected.
+    */
+   private static final Map<ClassLoader, Map<String, CommandMetadata>> TABLES = new WeakHashMap<>();
+
+   private final String permission;
+   private final String usage;
+   private final boolean subcommand;
+   private final boolean async;
+   private final int maxConcurrent;
+
+   /**
+    * Create metadata, used by generated tables
+    *
+    * @param permission value of {@link Permission}, null if missing
+    * @param usage value of {@link Usage}, null if missing
+    * @param subcommand whether the class is annotated with {@link Subcommand}
+    * @param async whether the class is annotated with {@link Async}
+    * @param maxConcurrent value of {@link Async#maxConcurrent()}, 0 if not async
+    */
+   public CommandMetadata(String permission, String usage, boolean subcommand, boolean async, int maxConcurrent) {
+      this.permission = permission;
+      this.usage = usage != null ? usage : DEFAULT_USAGE;
+      this.subcommand = subcommand;
+      this.async = async;
+      this.maxConcurrent = maxConcurrent;
+   }
+
+   /**
+    * Get the metadata of a command class
+    *
+    * @param type command class
+    * @return metadata
+    */
+   public static CommandMetadata of(Class<? extends CommandBase> type) { return METADATA.get(type); }
+
+   /**
+    * Get the permission needed to run the command
+    *
+    * @return permission, null if the class has no {@link Permission}
+    */
+   public String getPermission() { return permission; }
+
+   /**
+    * Get the usage shown when the command is used incorrectly
+    *
+    * @return usage, {@link CommandMetadata#DEFAULT_USAGE} if the class has no {@link Usage}
+    */
+   public String getUsage() { return usage; }
+
+   /**
+    * Check whether the command only runs as a subcommand
+    *
+    * @return true if the class has {@link Subcommand}
+    */
+   public boolean isSubcommand() { return subcommand; }
+
+   /**
+    * Check whether the command runs on the worker pool
+    *
+    * @return true if the class has {@link Async}
+    */
+   public boolean isAsync() { return async; }
+
+   /**
+    * Get the max amount of executions running at once
+    *
+    * @return {@link Async#maxConcurrent()}, 0 for no limit
+    */
+   public int getMaxConcurrent() { return maxConcurrent; }
+
+   private static Map<String, CommandMetadata> tableOf(ClassLoader loader) {
+      if (loader == null) return Collections.emptyMap();
+      synchronized (TABLES) {
+         Map<String, CommandMetadata> table = TABLES.get(loader);
+         if (table == null) {
+            Map<String, CommandMetadata> loaded = new HashMap<>();
+            for (Table generated : ServiceLoader.load(Table.class, loader)) {
+               generated.register((type, metadata) -> loaded.put(type.getName(), metadata));
+            }
+            table = loaded;
+            TABLES.put(loader, table);
+         }
+         return table;
+      }
+   }
+
+   private static CommandMetadata reflect(Class<?> type) {
+      Permission permission = type.getAnnotation(Permission.class);
+      Usage usage = type.getAnnotation(Usage.class);
+      Async async = type.getAnnotation(Async.class);
+      return new CommandMetadata(
+         permission != null ? permission.value() : null,
+         usage != null ? usage.value() : null,
+         type.isAnnotationPresent(Subcommand.class),
+         async != null,
+         async != null ? async.maxConcurrent() : 0
+      );
+   }
+
+   /**
+    * Table of metadata generated by the BONK-processor annotation processor, found through a {@link ServiceLoader}
+    */
+   public interface Table {
+
+      /**
+       * Register the metadata of every command class compiled with the table
+       *
+       * @param registry takes the class and its metadata
+       */
+      void register(BiConsumer<Class<? extends CommandBase>, CommandMetadata> registry);
+
+   }
+
+}
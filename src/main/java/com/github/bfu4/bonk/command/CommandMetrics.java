@@ -0,0 +1,115 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.github.bfu4.bonk.command;
+
+import com.github.bfu4.bonk.utility.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * CommandMetrics - Invocation counts and execution latency of a single command path
+ * <p>
+ * Recording only bumps counters, so it stays on for every command.
+ */
+public class CommandMetrics {
+
+   private final String path;
+   private final LongAdder invocations;
+   private final LongAdder denied;
+   private final LatencyHistogram latency;
+
+   /**
+    * Create new, empty metrics
+    *
+    * @param path command path, e.g. "warp set"
+    */
+   public CommandMetrics(String path) {
+      this.path = path;
+      this.invocations = new LongAdder();
+      this.denied = new LongAdder();
+      this.latency = new LatencyHistogram();
+   }
+
+   /**
+    * Record an execution of the command
+    *
+    * @param nanos time spent executing the command
+    */
+   void recordInvocation(long nanos) {
+      invocations.increment();
+      latency.record(nanos);
+   }
+
+   /**
+    * Record a user being denied the command
+    */
+   void recordDenied() {
+      denied.increment();
+   }
+
+   /**
+    * Get the command path, the name of the command followed by the names of the subcommands
+    *
+    * @return path
+    */
+   public String getPath() { return path; }
+
+   /**
+    * Get the amount of times the command was executed
+    *
+    * @return invocations
+    */
+   public long getInvocations() { return invocations.sum(); }
+
+   /**
+    * Get the amount of times a user was denied the command for lacking its permission
+    *
+    * @return denied invocations
+    */
+   public long getDenied() { return denied.sum(); }
+
+   /**
+    * Get the execution latency. For {@link Async} commands this is the time spent on the worker.
+    *
+    * @return latency histogram
+    */
+   public LatencyHistogram getLatency() { return latency; }
+
+   /**
+    * Forget everything recorded so far
+    */
+   public void reset() {
+      invocations.reset();
+      denied.reset();
+      latency.reset();
+   }
+
+   @Override
+   public String toString() {
+      return "/" + path + ": invocations=" + getInvocations() + " denied=" + getDenied() + " " + latency;
+   }
+
+}
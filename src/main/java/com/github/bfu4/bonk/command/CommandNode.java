@@ -0,0 +1,244 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.github.bfu4.bonk.command;
+
+import com.github.bfu4.bonk.player.BasePlayer;
+import org.bukkit.command.CommandSender;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Level;
+
+/**
+ * CommandNode - Compiled, immutable view of a {@link CommandBase} and its subcommands
+ * <p>
+ * The permission, usage and subcommand flag of every command are resolved once when the
+ * tree is compiled, so dispatching a command doesn't touch reflection and walks the
+ * arguments by offset instead of copying them for every level.
+ */
+public final class CommandNode {
+
+   private final CommandBase command;
+   private final String name;
+   private final CommandMetrics metrics;
+   private final String permission;
+   private final String usage;
+   private final boolean subcommand;
+   private final Map<String, CommandNode> children;
+
+   /**
+    * Pool running the command if it is {@link Async}, null if it runs on the calling thread.
+    */
+   private final AsyncCommandPool pool;
+
+   /**
+    * Permits for concurrent executions of an {@link Async} command, null if unlimited.
+    */
+   private final Semaphore running;
+
+   private CommandNode(CommandBase command, String name, String parentPath, AsyncCommandPool pool, Set<CommandBase> ancestors) {
+      if (!ancestors.add(command)) {
+         throw new IllegalArgumentException("Command " + command.getName() + " is its own subcommand!");
+      }
+      this.command = command;
+      this.name = name;
+      CommandMetadata metadata = command.getMetadata();
+      if (metadata.getPermission() == null) {
+         throw new IllegalArgumentException("Command " + command.getName() + " has no @Permission!");
+      }
+      this.metrics = command.getMetrics(parentPath == null ? name : parentPath + " " + name);
+      this.permission = metadata.getPermission();
+      this.usage = metadata.getUsage();
+      this.subcommand = metadata.isSubcommand();
+      this.pool = metadata.isAsync() ? pool : null;
+      this.running = this.pool != null && metadata.getMaxConcurrent() > 0 ? new Semaphore(metadata.getMaxConcurrent()) : null;
+
+      Map<String, CommandNode> children = new HashMap<>();
+      command.getSubcommands().forEach((subcommandName, sub) ->
+         children.put(subcommandName.toLowerCase(), new CommandNode(sub, subcommandName, metrics.getPath(), pool, ancestors))
+      );
+      this.children = Collections.unmodifiableMap(children);
+      ancestors.remove(command);
+   }
+
+   /**
+    * Compile a command and all of its subcommands
+    *
+    * @param command command to compile
+    * @param pool pool running {@link Async} commands, null to run them on the calling thread
+    * @return root node of the command
+    * @throws IllegalArgumentException if a command is (indirectly) a subcommand of itself or has no {@link Permission}
+    */
+   public static CommandNode compile(CommandBase command, AsyncCommandPool pool) {
+      return new CommandNode(command, command.getName(), null, pool, Collections.newSetFromMap(new IdentityHashMap<>()));
+   }
+
+   /**
+    * Run the command, descending into the subcommands named by the leading arguments
+    *
+    * @param sender sender of the command
+    * @param args arguments passed
+    */
+   public void dispatch(CommandSender sender, String[] args) {
+      BasePlayer user = command.getPlugin().getPlayerRegistry().get(sender);
+      if (!permits(user)) {
+         metrics.recordDenied();
+         user.sendFormattedMessage("&cInsufficient permission!");
+         return;
+      }
+
+      CommandNode node = this;
+      int offset = 0;
+      while (offset < args.length) {
+         CommandNode next = node.getChild(args[offset]);
+         if (next == null || !next.isSubcommand()) break;
+         if (!next.permits(user)) {
+            next.metrics.recordDenied();
+            user.sendFormattedMessage("&cInsufficient permission!");
+            return;
+         }
+         node = next;
+         offset++;
+      }
+      node.execute(user, offset == 0 ? args : Arrays.copyOfRange(args, offset, args.length));
+   }
+
+   private void execute(BasePlayer user, String[] args) {
+      if (pool == null) {
+         timedExecute(user, args);
+         return;
+      }
+
+      if (running != null && !running.tryAcquire()) {
+         user.sendFormattedMessage("&cThis command is already running, try again later!");
+         return;
+      }
+      boolean submitted = pool.submit(() -> {
+         try {
+            timedExecute(user, args);
+         } catch (Throwable t) {
+            command.getPlugin().getLogger().log(Level.SEVERE, "Failed to execute command " + name + "!", t);
+         } finally {
+            if (running != null) running.release();
+         }
+      });
+      if (!submitted) {
+         if (running != null) running.release();
+         user.sendFormattedMessage("&cThe server is busy, try again later!");
+      }
+   }
+
+   private void timedExecute(BasePlayer user, String[] args) {
+      long start = System.nanoTime();
+      try {
+         command.execute(user, args);
+      } finally {
+         metrics.recordInvocation(System.nanoTime() - start);
+      }
+   }
+
+   /**
+    * Check if a user may run this command
+    *
+    * @param user user to check
+    * @return true if the user has the permission of the command
+    */
+   public boolean permits(BasePlayer user) {
+      return user.hasPermission(permission);
+   }
+
+   /**
+    * Get a subcommand by the argument naming it
+    *
+    * @param arg argument, case insensitive
+    * @return subcommand, or null if there is none by that name
+    */
+   public CommandNode getChild(String arg) {
+      return children.get(arg.toLowerCase());
+   }
+
+   /**
+    * Get the subcommands, keyed by their lowercase name
+    *
+    * @return subcommands
+    */
+   public Map<String, CommandNode> getChildren() { return children; }
+
+   /**
+    * Get the command this node was compiled from
+    *
+    * @return command
+    */
+   public CommandBase getCommand() { return command; }
+
+   /**
+    * Get the name the command was registered or added as
+    *
+    * @return name
+    */
+   public String getName() { return name; }
+
+   /**
+    * Get the metrics of this command path. They are kept by the command, so compiling it again doesn't reset them.
+    *
+    * @return metrics
+    */
+   public CommandMetrics getMetrics() { return metrics; }
+
+   /**
+    * Get the permission required to run the command
+    *
+    * @return permission
+    */
+   public String getPermission() { return permission; }
+
+   /**
+    * Get the command usage
+    *
+    * @return usage
+    */
+   public String getUsage() { return usage; }
+
+   /**
+    * Check if the command is a subcommand
+    *
+    * @return true if annotated with {@link Subcommand}
+    */
+   public boolean isSubcommand() { return subcommand; }
+
+   /**
+    * Check if the command runs on a worker pool
+    *
+    * @return true if annotated with {@link Async} and compiled with a pool
+    */
+   public boolean isAsync() { return pool != null; }
+
+}
@@ -0,0 +1,155 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.github.bfu4.bonk.command;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * CompletionIndex - Sorted, case insensitive index of tab completion candidates
+ * <p>
+ * Looking up the candidates starting with a prefix costs O(log n + k) for k results. Candidates
+ * can be added and removed from any thread at any time, so dynamic sources such as online players
+ * or warps can keep the index up to date as they change (e.g. from join and quit listeners) instead
+ * of handing over a fresh list on every completion request.
+ */
+public class CompletionIndex {
+
+   /**
+    * Separates the lowercase key from the candidate, sorting before any other character so
+    * all spellings of a key stay next to each other.
+    */
+   private static final char SEPARATOR = '\u0000';
+
+   private final ConcurrentSkipListMap<String, String> candidates;
+
+   /**
+    * Create a new, empty index
+    */
+   public CompletionIndex() {
+      this.candidates = new ConcurrentSkipListMap<>();
+   }
+
+   /**
+    * Add candidates to the index
+    *
+    * @param candidates candidates to add
+    */
+   public void add(String ... candidates) {
+      addAll(Arrays.asList(candidates));
+   }
+
+   /**
+    * Add candidates to the index
+    *
+    * @param candidates candidates to add
+    */
+   public void addAll(Collection<String> candidates) {
+      for (String candidate : candidates) {
+         this.candidates.put(key(candidate), candidate);
+      }
+   }
+
+   /**
+    * Remove a candidate from the index
+    *
+    * @param candidate candidate to remove, case sensitive
+    * @return true if the candidate was in the index
+    */
+   public boolean remove(String candidate) {
+      return candidates.remove(key(candidate)) != null;
+   }
+
+   /**
+    * Check if a candidate is in the index
+    *
+    * @param candidate candidate, case sensitive
+    * @return true if the candidate is in the index
+    */
+   public boolean contains(String candidate) {
+      return candidates.containsKey(key(candidate));
+   }
+
+   /**
+    * Get the candidates starting with the given prefix, ignoring case
+    *
+    * @param prefix prefix that was typed
+    * @param limit max amount of candidates to return, negative limits count as 0
+    * @return matching candidates in alphabetical order
+    */
+   public List<String> complete(String prefix, int limit) {
+      if (limit <= 0) return new ArrayList<>(0);
+      String lower = prefix.toLowerCase(Locale.ROOT);
+      NavigableMap<String, String> matches = candidates.subMap(lower, true, lower + Character.MAX_VALUE, false);
+      List<String> result = new ArrayList<>(Math.min(limit, 16));
+      for (String candidate : matches.values()) {
+         if (result.size() >= limit) break;
+         result.add(candidate);
+      }
+      return result;
+   }
+
+   /**
+    * Get all candidates starting with the given prefix, ignoring case
+    *
+    * @param prefix prefix that was typed
+    * @return matching candidates in alphabetical order
+    */
+   public List<String> complete(String prefix) {
+      return complete(prefix, Integer.MAX_VALUE);
+   }
+
+   /**
+    * Get every candidate in the index
+    *
+    * @return candidates in alphabetical order
+    */
+   public List<String> getAll() {
+      return new ArrayList<>(candidates.values());
+   }
+
+   /**
+    * Get the amount of candidates, O(n)
+    *
+    * @return amount of candidates
+    */
+   public int size() { return candidates.size(); }
+
+   /**
+    * Remove every candidate from the index
+    */
+   public void clear() { candidates.clear(); }
+
+   private static String key(String candidate) {
+      return candidate.toLowerCase(Locale.ROOT) + SEPARATOR + candidate;
+   }
+
+}
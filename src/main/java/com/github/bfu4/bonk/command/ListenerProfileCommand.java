@@ -0,0 +1,92 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.github.bfu4.bonk.command;
+
+import com.github.bfu4.bonk.PluginBase;
+import com.github.bfu4.bonk.listener.HandlerMetrics;
+import com.github.bfu4.bonk.listener.ListenerProfiler;
+import com.github.bfu4.bonk.player.BasePlayer;
+import com.github.bfu4.bonk.player.MessageTemplate;
+import com.github.bfu4.bonk.utility.LatencyHistogram;
+import org.bukkit.ChatColor;
+
+import java.util.List;
+
+/**
+ * ListenerProfileCommand - Shows the listeners taking the most time, recorded by the plugin's {@link ListenerProfiler}
+ * <p>
+ * Without arguments it lists the listeners with the most time spent, "flagged" lists only the
+ * ones that went over budget and "reset" clears the metrics. Register it like any other command,
+ * it needs an entry in the plugin.yml.
+ */
+@Permission("bonk.admin.listeners")
+@Usage("&c/<command> [flagged|reset]")
+public class ListenerProfileCommand extends CommandBase {
+
+   private static final int SHOWN = 10;
+
+   private static final MessageTemplate LINE = MessageTemplate.of(
+      "&e{listener} &7{event}&8: &f{calls} &7calls, &f{total}ms &7total, p99 &f{p99}ms&7, max &f{max}ms{flag}");
+
+   public ListenerProfileCommand(String commandIdentifier, PluginBase plugin) {
+      super(commandIdentifier, plugin, "flagged", "reset");
+   }
+
+   @Override
+   public void execute(BasePlayer user, String[] args) {
+      ListenerProfiler profiler = getPlugin().getListenerRegistry().getProfiler();
+      if (profiler == null) {
+         user.sendFormattedMessage("&cListener profiling is not enabled.");
+         return;
+      }
+
+      if (args.length > 0 && args[0].equalsIgnoreCase("reset")) {
+         profiler.reset();
+         user.sendFormattedMessage("&aListener metrics reset.");
+         return;
+      }
+
+      boolean flagged = args.length > 0 && args[0].equalsIgnoreCase("flagged");
+      List<HandlerMetrics> metrics = flagged ? profiler.getOverBudget() : profiler.getMetrics();
+      if (metrics.isEmpty()) {
+         user.sendFormattedMessage(flagged ? "&aNo listener went over its budget." : "&7No listener calls recorded yet.");
+         return;
+      }
+
+      user.sendFormattedMessage("&7Listeners by time spent, budget &f" + millis(profiler.getBudgetNanos()) + "ms&7:");
+      for (HandlerMetrics handler : metrics.subList(0, Math.min(SHOWN, metrics.size()))) {
+         LatencyHistogram latency = handler.getLatency();
+         user.sendMessage(LINE, handler.getListenerName(), handler.getEventType().getSimpleName(), handler.getCalls(),
+            millis(latency.getTotal()), millis(latency.getPercentile(99)), millis(latency.getMax()),
+            handler.isOverBudget() ? " " + ChatColor.RED + "(" + handler.getOverBudget() + " over budget)" : "");
+      }
+   }
+
+   private static String millis(long nanos) {
+      return String.format("%.2f", nanos / 1e6);
+   }
+
+}
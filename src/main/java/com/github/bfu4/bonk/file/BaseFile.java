@@ -27,6 +27,11 @@ package com.github.bfu4.bonk.file;
 import com.github.bfu4.bonk.PluginBase;
 
 import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * BaseFile - Base for file objects
@@ -42,6 +47,8 @@ public abstract class BaseFile {
    private final String extension;
    protected File file;
 
+   private final List<FileChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+
    /**
     * Create new file
     *
@@ -50,8 +57,20 @@ public abstract class BaseFile {
     * @param extension file extension
     */
    public BaseFile(PluginBase plugin, String name, String extension) {
+      this(plugin, plugin.getDataFolder(), name, extension);
+   }
+
+   /**
+    * Create new file in a folder other than the data folder of the plugin
+    *
+    * @param plugin plugin that the file belongs to
+    * @param dataFolder folder which contains the file
+    * @param name name of the file
+    * @param extension file extension
+    */
+   public BaseFile(PluginBase plugin, File dataFolder, String name, String extension) {
       this.plugin = plugin;
-      this.dataFolder = plugin.getDataFolder();
+      this.dataFolder = dataFolder;
       this.name = name;
       this.extension = extension;
 
@@ -110,4 +129,78 @@ public abstract class BaseFile {
     */
    public abstract void createFile();
 
+   /**
+    * Get notified of the keys that changed when the file is reloaded by a {@link FileWatcher}
+    *
+    * @param listener listener to add
+    */
+   public void addChangeListener(FileChangeListener listener) { changeListeners.add(listener); }
+
+   /**
+    * Stop getting notified of changes
+    *
+    * @param listener listener to remove
+    */
+   public void removeChangeListener(FileChangeListener listener) { changeListeners.remove(listener); }
+
+   /**
+    * Get the values stored in the file, flattened to their full keys, used to tell which keys changed on a reload
+    *
+    * @return values by key, empty if the file doesn't support key level changes
+    */
+   protected Map<String, Object> getValues() { return Collections.emptyMap(); }
+
+   /**
+    * Do the expensive part of a reload off the main thread, called by a {@link FileWatcher}.
+    * The default reloads on the main thread instead, files override this to read and parse here.
+    *
+    * @return action swapping in the reloaded contents on the main thread, or null if the file didn't change
+    */
+   protected Runnable prepareReload() { return this::reload; }
+
+   /**
+    * Reload the file without blocking the main thread. The file is read and parsed on a {@link FileIO}
+    * thread, and swapped in on the main thread, where the change listeners are notified.
+    *
+    * @return future completed once the reloaded contents were swapped in, or right away if the file didn't change
+    */
+   public CompletableFuture<Void> reloadAsync() {
+      return FileIO.supply(this::prepareReload).thenCompose(apply -> {
+         if (apply == null) return CompletableFuture.completedFuture(null);
+         CompletableFuture<Void> applied = new CompletableFuture<>();
+         plugin.getServer().getScheduler().runTask(plugin, () -> {
+            try {
+               applyReload(apply);
+               applied.complete(null);
+            } catch (RuntimeException e) {
+               applied.completeExceptionally(e);
+            }
+         });
+         return applied;
+      });
+   }
+
+   /**
+    * Swap in reloaded contents on the main thread and notify the change listeners
+    *
+    * @param apply action returned by {@link BaseFile#prepareReload()}
+    */
+   void applyReload(Runnable apply) {
+      if (changeListeners.isEmpty()) {
+         apply.run();
+         return;
+      }
+      Map<String, Object> before = getValues();
+      apply.run();
+      FileChange change = FileChange.diff(this, before, getValues());
+      if (change.isEmpty()) return;
+      for (FileChangeListener listener : changeListeners) {
+         try {
+            listener.onChange(change);
+         } catch (RuntimeException e) {
+            getPlugin().getLogger().warning("Failed to handle changes of " + getName() + getExtension() + "! Error: " + e.getLocalizedMessage() + ".");
+         }
+      }
+   }
+
 }
@@ -0,0 +1,126 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.bfu4.bonk.file;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+/**
+ * ConfigKey - Handle to a single value of a {@link YamlFile}
+ * <p>
+ * Reading through {@link ConfigurationSection} splits the path and walks the nested sections on
+ * every call. A key resolves its path once per load of the file and keeps the converted value,
+ * so reading it is a field access. Keys are created through the file, e.g. {@link YamlFile#intKey(String, int)},
+ * and are best kept in a field.
+ */
+public abstract class ConfigKey {
+
+   private final YamlFile yamlFile;
+   private final String path;
+   private volatile Cached cached;
+
+   ConfigKey(YamlFile yamlFile, String path) {
+      this.yamlFile = yamlFile;
+      this.path = path;
+   }
+
+   /**
+    * Get the file the key reads from
+    *
+    * @return file
+    */
+   public YamlFile getYamlFile() { return yamlFile; }
+
+   /**
+    * Get the path of the value
+    *
+    * @return path, e.g. "settings.max-homes"
+    */
+   public String getPath() { return path; }
+
+   /**
+    * Check if the file has a value at the path
+    *
+    * @return true if set
+    */
+   public boolean isSet() { return yamlFile.getConfiguration().isSet(path); }
+
+   /**
+    * Get the value, read again only if the file was reloaded or changed since the last call
+    *
+    * @return cached value
+    */
+   final Cached cached() {
+      Cached current = cached;
+      // Read the generation before the configuration, so a concurrent reload at worst causes an extra read
+      int generation = yamlFile.getGeneration();
+      if (current != null && current.generation == generation) return current;
+      current = read(yamlFile.getConfiguration(), generation);
+      cached = current;
+      return current;
+   }
+
+   /**
+    * Set the value in the configuration, the file still has to be saved
+    *
+    * @param value new value
+    */
+   final void write(Object value) {
+      yamlFile.getConfiguration().set(path, value);
+      yamlFile.invalidateKeys();
+   }
+
+   /**
+    * Read and convert the value
+    *
+    * @param configuration configuration to read from
+    * @param generation generation of the configuration
+    * @return converted value
+    */
+   abstract Cached read(ConfigurationSection configuration, int generation);
+
+   @Override
+   public String toString() {
+      return getClass().getSimpleName() + "{" + path + "}";
+   }
+
+   /**
+    * Converted value of a key for one generation of the configuration. Primitive values are
+    * stored in {@link Cached#bits} so reading them doesn't box.
+    */
+   static final class Cached {
+
+      final int generation;
+      final long bits;
+      final Object value;
+
+      Cached(int generation, long bits, Object value) {
+         this.generation = generation;
+         this.bits = bits;
+         this.value = value;
+      }
+
+   }
+
+}
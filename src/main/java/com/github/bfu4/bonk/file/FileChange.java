@@ -0,0 +1,144 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.bfu4.bonk.file;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * FileChange - Keys that were added, removed or modified by reloading a file
+ */
+public class FileChange {
+
+   private final BaseFile file;
+   private final Set<String> added;
+   private final Set<String> removed;
+   private final Set<String> modified;
+
+   private FileChange(BaseFile file, Set<String> added, Set<String> removed, Set<String> modified) {
+      this.file = file;
+      this.added = Collections.unmodifiableSet(added);
+      this.removed = Collections.unmodifiableSet(removed);
+      this.modified = Collections.unmodifiableSet(modified);
+   }
+
+   /**
+    * Compare the values of a file before and after a reload
+    *
+    * @param file file that was reloaded
+    * @param before values before the reload
+    * @param after values after the reload
+    * @return the change
+    */
+   public static FileChange diff(BaseFile file, Map<String, Object> before, Map<String, Object> after) {
+      Set<String> added = new HashSet<>();
+      Set<String> removed = new HashSet<>();
+      Set<String> modified = new HashSet<>();
+      after.forEach((key, value) -> {
+         if (!before.containsKey(key)) {
+            added.add(key);
+         } else if (!Objects.equals(before.get(key), value)) {
+            modified.add(key);
+         }
+      });
+      before.keySet().forEach(key -> {
+         if (!after.containsKey(key)) removed.add(key);
+      });
+      return new FileChange(file, added, removed, modified);
+   }
+
+   /**
+    * Get the file that was reloaded
+    *
+    * @return file
+    */
+   public BaseFile getFile() { return file; }
+
+   /**
+    * Get the keys that didn't exist before
+    *
+    * @return added keys
+    */
+   public Set<String> getAdded() { return added; }
+
+   /**
+    * Get the keys that no longer exist
+    *
+    * @return removed keys
+    */
+   public Set<String> getRemoved() { return removed; }
+
+   /**
+    * Get the keys whose value changed
+    *
+    * @return modified keys
+    */
+   public Set<String> getModified() { return modified; }
+
+   /**
+    * Get every key that was added, removed or modified
+    *
+    * @return changed keys
+    */
+   public Set<String> getChangedKeys() {
+      Set<String> keys = new HashSet<>(added);
+      keys.addAll(removed);
+      keys.addAll(modified);
+      return keys;
+   }
+
+   /**
+    * Check if a key or anything below it changed
+    *
+    * @param path key, or section containing keys
+    * @return true if the key or a key in the section changed
+    */
+   public boolean affects(String path) {
+      String prefix = path + ".";
+      for (Set<String> keys : Arrays.asList(added, removed, modified)) {
+         for (String key : keys) {
+            if (key.equals(path) || key.startsWith(prefix)) return true;
+         }
+      }
+      return false;
+   }
+
+   /**
+    * Check if nothing changed
+    *
+    * @return true if no key changed
+    */
+   public boolean isEmpty() { return added.isEmpty() && removed.isEmpty() && modified.isEmpty(); }
+
+   @Override
+   public String toString() {
+      return file.getName() + file.getExtension() + ": added=" + added + " removed=" + removed + " modified=" + modified;
+   }
+
+}
@@ -0,0 +1,150 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.bfu4.bonk.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * FileIO - Background threads for file work that shouldn't block the main thread
+ * <p>
+ * On Java 21 and newer every task runs on its own virtual thread, so any amount of blocking work
+ * can run at once. Older versions fall back to a bounded pool of platform threads, see {@link IOExecutor}.
+ * Tasks may run concurrently, so work that has to happen in order must be chained by the caller.
+ */
+public final class FileIO {
+
+   private static final ExecutorService EXECUTOR = IOExecutor.create("BONK-file-io");
+
+   /**
+    * Suffix of temporary files, unique per write so concurrent writes of a file don't share one.
+    */
+   private static final AtomicLong TEMP_COUNTER = new AtomicLong();
+
+   private FileIO() { }
+
+   /**
+    * Run blocking file work off the calling thread
+    *
+    * @param task work to run
+    * @return future completed once the work ran, exceptionally if it failed
+    */
+   public static CompletableFuture<Void> run(IOTask task) {
+      return CompletableFuture.runAsync(() -> {
+         try {
+            task.run();
+         } catch (IOException e) {
+            throw new CompletionException(e);
+         }
+      }, EXECUTOR);
+   }
+
+   /**
+    * Compute a value with blocking work off the calling thread
+    *
+    * @param task work computing the value
+    * @param <T> type of the value
+    * @return future completed with the value, exceptionally if the work failed
+    */
+   public static <T> CompletableFuture<T> supply(Supplier<T> task) {
+      return CompletableFuture.supplyAsync(task, EXECUTOR);
+   }
+
+   /**
+    * Get the executor running the file work, for other blocking work such as database calls
+    *
+    * @return executor
+    */
+   public static Executor executor() { return EXECUTOR; }
+
+   /**
+    * Check whether the file work runs on virtual threads
+    *
+    * @return true on Java 21 and newer
+    */
+   public static boolean isVirtual() { return IOExecutor.isVirtual(); }
+
+   /**
+    * Replace the contents of a file. The data goes to a temporary file next to it first,
+    * which is then renamed over the file, so readers never see a partially written file.
+    *
+    * @param file file to write
+    * @param data contents of the file, written as UTF-8
+    * @throws IOException if writing or renaming failed
+    */
+   public static void writeAtomically(File file, String data) throws IOException {
+      writeAtomically(file, data.getBytes(StandardCharsets.UTF_8));
+   }
+
+   /**
+    * Replace the contents of a file. The data goes to a temporary file next to it first,
+    * which is then renamed over the file, so readers never see a partially written file.
+    *
+    * @param file file to write
+    * @param data contents of the file
+    * @throws IOException if writing or renaming failed
+    */
+   public static void writeAtomically(File file, byte[] data) throws IOException {
+      Path target = file.toPath();
+      Path temp = target.resolveSibling(file.getName() + "." + TEMP_COUNTER.incrementAndGet() + ".tmp");
+      Files.write(temp, data);
+      move(temp.toFile(), file);
+   }
+
+   /**
+    * Rename a file, replacing the target. The rename is atomic where the file system supports it.
+    *
+    * @param source file to rename
+    * @param target new name of the file
+    * @throws IOException if renaming failed
+    */
+   public static void move(File source, File target) throws IOException {
+      try {
+         Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+         Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+   }
+
+   /**
+    * File work that may fail with an {@link IOException}
+    */
+   @FunctionalInterface
+   public interface IOTask {
+      void run() throws IOException;
+   }
+
+}
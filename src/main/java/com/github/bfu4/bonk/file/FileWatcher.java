@@ -0,0 +1,170 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.bfu4.bonk.file;
+
+import com.github.bfu4.bonk.PluginBase;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * FileWatcher - Reloads files in a plugin's data folder when they are edited on disk
+ * <p>
+ * Editors tend to write a file several times when saving, so a file is only reloaded once it
+ * stayed unchanged for the debounce delay. The file is read and parsed on the watcher's thread,
+ * then swapped in on the main thread, where the file's {@link FileChangeListener}s are told which
+ * keys changed.
+ */
+public class FileWatcher implements Closeable {
+
+   private final PluginBase plugin;
+   private final long debounceMillis;
+   private final WatchService watchService;
+
+   /**
+    * Watched files by file name.
+    */
+   private final ConcurrentHashMap<String, BaseFile> files;
+   private final ConcurrentHashMap<String, ScheduledFuture<?>> pending;
+   private final ScheduledExecutorService executor;
+   private final Thread thread;
+   private volatile boolean closed;
+
+   /**
+    * Start watching the data folder of a plugin
+    *
+    * @param plugin plugin whose data folder to watch
+    * @param debounceMillis time a file has to stay unchanged before it is reloaded
+    * @throws IOException if the folder can't be watched
+    */
+   public FileWatcher(PluginBase plugin, long debounceMillis) throws IOException {
+      this.plugin = plugin;
+      this.debounceMillis = debounceMillis;
+      this.files = new ConcurrentHashMap<>();
+      this.pending = new ConcurrentHashMap<>();
+
+      Path folder = plugin.getDataFolder().toPath();
+      Files.createDirectories(folder);
+      this.watchService = folder.getFileSystem().newWatchService();
+      folder.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+      this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+         Thread reloader = new Thread(runnable, "BONK-file-reload-" + plugin.getName());
+         reloader.setDaemon(true);
+         return reloader;
+      });
+      this.thread = new Thread(this::poll, "BONK-file-watch-" + plugin.getName());
+      this.thread.setDaemon(true);
+      this.thread.start();
+   }
+
+   /**
+    * Reload a file when it changes. It has to be directly inside the plugin's data folder.
+    *
+    * @param file file to watch
+    */
+   public void watch(BaseFile file) {
+      files.put(file.getFile().getName(), file);
+   }
+
+   /**
+    * Stop reloading a file when it changes
+    *
+    * @param file file to stop watching
+    */
+   public void unwatch(BaseFile file) {
+      files.remove(file.getFile().getName(), file);
+   }
+
+   /**
+    * Stop watching. Call this from {@link PluginBase#onDisable()}.
+    */
+   @Override
+   public void close() {
+      closed = true;
+      try {
+         watchService.close();
+      } catch (IOException e) {
+         plugin.getLogger().warning("Failed to close file watcher! Reason: " + e.getMessage());
+      }
+      executor.shutdownNow();
+   }
+
+   private void poll() {
+      while (!closed) {
+         WatchKey key;
+         try {
+            key = watchService.take();
+         } catch (InterruptedException | ClosedWatchServiceException e) {
+            return;
+         }
+         for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+               // Events were lost, check everything
+               files.keySet().forEach(this::schedule);
+            } else {
+               schedule(event.context().toString());
+            }
+         }
+         if (!key.reset()) return;
+      }
+   }
+
+   private void schedule(String name) {
+      BaseFile file = files.get(name);
+      if (file == null || closed) return;
+      pending.compute(name, (key, previous) -> {
+         if (previous != null) previous.cancel(false);
+         return executor.schedule(() -> reload(name, file), debounceMillis, TimeUnit.MILLISECONDS);
+      });
+   }
+
+   private void reload(String name, BaseFile file) {
+      pending.remove(name);
+      Runnable apply;
+      try {
+         apply = file.prepareReload();
+      } catch (RuntimeException e) {
+         plugin.getLogger().log(Level.WARNING, "Failed to reload " + name + "!", e);
+         return;
+      }
+      if (apply == null || closed || !plugin.isEnabled()) return;
+      plugin.getServer().getScheduler().runTask(plugin, () -> file.applyReload(apply));
+   }
+
+}
@@ -0,0 +1,77 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.bfu4.bonk.file;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * IOExecutor - Creates the executor for blocking file work
+ * <p>
+ * This is the Java 8 version, a bounded pool of platform threads. The jar is a multi-release jar,
+ * and on Java 21 and newer the version in src/main/java21 is loaded instead, which starts a virtual
+ * thread per task.
+ */
+final class IOExecutor {
+
+   /**
+    * Most platform threads running blocking work at once.
+    */
+   private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+   private IOExecutor() { }
+
+   /**
+    * Create the executor. Its threads are daemons and stop again after a minute without work.
+    *
+    * @param name name used for the threads
+    * @return executor
+    */
+   static ExecutorService create(String name) {
+      AtomicInteger count = new AtomicInteger();
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(
+         THREADS, THREADS, 60, TimeUnit.SECONDS,
+         new LinkedBlockingQueue<>(),
+         runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+         }
+      );
+      executor.allowCoreThreadTimeOut(true);
+      return executor;
+   }
+
+   /**
+    * Check whether the executor starts virtual threads
+    *
+    * @return false, platform threads are used before Java 21
+    */
+   static boolean isVirtual() { return false; }
+
+}
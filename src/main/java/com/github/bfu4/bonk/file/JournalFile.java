@@ -0,0 +1,470 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.bfu4.bonk.file;
+
+import com.github.bfu4.bonk.PluginBase;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+
+/**
+ * JournalFile - Append-only key/value journal for data that changes too often to rewrite as yaml
+ * <p>
+ * Appends are encoded on the calling thread and handed to the journal's writer thread, which
+ * writes everything queued in one go and syncs it to disk once per batch, so the cost of a sync
+ * is shared by all appends waiting for it. The journal is split into segments of a limited size.
+ * Once enough segments are full, they are compacted in the background into a single segment
+ * holding only the latest value of every key.
+ * <p>
+ * The journal is a directory named after the file, call {@link JournalFile#createFile()} to open it,
+ * {@link JournalFile#replay(BiConsumer)} to read it back and {@link JournalFile#close()} from
+ * {@link PluginBase#onDisable()}.
+ */
+public class JournalFile extends BaseFile implements Closeable {
+
+   private static final long DEFAULT_SEGMENT_BYTES = 16 * 1024 * 1024;
+   private static final int DEFAULT_COMPACTION_THRESHOLD = 4;
+   private static final int MAX_BATCH = 8192;
+   private static final int BUFFER_BYTES = 256 * 1024;
+
+   /**
+    * Queued by {@link JournalFile#close()} to stop the writer once everything before it is written.
+    */
+   private static final Append CLOSE = new Append(null);
+
+   private final long segmentBytes;
+   private final int compactionThreshold;
+   private final BlockingQueue<Append> queue;
+   private final AtomicBoolean compacting;
+
+   /**
+    * Full segments, oldest first. Rolling over, compacting and replaying hold the lock of the list.
+    */
+   private final List<JournalSegment> closedSegments;
+   private JournalSegment activeSegment;
+   private volatile long durableBytes;
+
+   private FileChannel channel;
+   private Thread writer;
+   private ExecutorService compactor;
+   private volatile boolean open;
+
+   /**
+    * Create new journal with 16 MiB segments, compacted once 4 segments are full
+    *
+    * @param plugin plugin that the journal belongs to
+    * @param name name of the journal
+    */
+   public JournalFile(PluginBase plugin, String name) {
+      this(plugin, name, DEFAULT_SEGMENT_BYTES, DEFAULT_COMPACTION_THRESHOLD);
+   }
+
+   /**
+    * Create new journal
+    *
+    * @param plugin plugin that the journal belongs to
+    * @param name name of the journal
+    * @param segmentBytes size after which a new segment is started
+    * @param compactionThreshold amount of full segments that triggers a compaction, 0 to only compact through {@link JournalFile#compact()}
+    */
+   public JournalFile(PluginBase plugin, String name, long segmentBytes, int compactionThreshold) {
+      super(plugin, name, ".journal");
+      this.segmentBytes = segmentBytes;
+      this.compactionThreshold = compactionThreshold;
+      this.queue = new LinkedBlockingQueue<>();
+      this.compacting = new AtomicBoolean();
+      this.closedSegments = new ArrayList<>();
+   }
+
+   /**
+    * Create the journal directory if needed and open the journal
+    */
+   @Override
+   public void createFile() {
+      reload();
+   }
+
+   /**
+    * Close and open the journal again. A record left incomplete by a crash is dropped.
+    */
+   @Override
+   public synchronized void reload() {
+      close();
+      try {
+         open();
+      } catch (IOException e) {
+         getPlugin().getLogger().warning("Failed to open " + getName() + getExtension() + "! Error: " + e.getLocalizedMessage() + ".");
+      }
+   }
+
+   /**
+    * Append a value
+    *
+    * @param key key of the value
+    * @param value value
+    * @return future completed once the value is synced to disk
+    */
+   public CompletableFuture<Void> append(String key, byte[] value) {
+      return enqueue(new Append(JournalSegment.encode(key, value)));
+   }
+
+   /**
+    * Append the removal of a key
+    *
+    * @param key key to remove
+    * @return future completed once the removal is synced to disk
+    */
+   public CompletableFuture<Void> remove(String key) {
+      return enqueue(new Append(JournalSegment.encode(key, null)));
+   }
+
+   /**
+    * Read back every record in the journal, oldest first, including appends synced so far.
+    * The writer can't start a new segment while this runs, so do this before appending a lot.
+    *
+    * @param consumer receives the key and value of every record, the value is null for removals
+    * @throws IOException if a segment can't be read
+    */
+   public void replay(BiConsumer<String, byte[]> consumer) throws IOException {
+      if (!open) throw new IllegalStateException(getName() + getExtension() + " is not open");
+      synchronized (closedSegments) {
+         for (JournalSegment segment : closedSegments) {
+            long valid = segment.read(consumer, Long.MAX_VALUE);
+            if (valid < segment.getFile().length()) {
+               getPlugin().getLogger().warning("Segment " + segment + " of " + getName() + getExtension() + " is damaged after " + valid + " bytes, skipped the rest of it.");
+            }
+         }
+         activeSegment.read(consumer, durableBytes);
+      }
+   }
+
+   /**
+    * Compact the full segments into one holding only the latest value of every key.
+    * Does nothing if a compaction is already running.
+    *
+    * @return future completed once the compaction finished
+    */
+   public CompletableFuture<Void> compact() {
+      if (!open) throw new IllegalStateException(getName() + getExtension() + " is not open");
+      return scheduleCompaction();
+   }
+
+   /**
+    * Hand a compaction to the compactor. Doesn't check whether the journal is open, as the writer
+    * rolls segments while {@link JournalFile#close()} drains the last appends.
+    *
+    * @return future completed once the compaction finished
+    */
+   private CompletableFuture<Void> scheduleCompaction() {
+      if (!compacting.compareAndSet(false, true)) return CompletableFuture.completedFuture(null);
+      CompletableFuture<Void> future = new CompletableFuture<>();
+      compactor.execute(() -> {
+         try {
+            compactNow();
+            future.complete(null);
+         } catch (IOException | RuntimeException e) {
+            getPlugin().getLogger().log(Level.WARNING, "Failed to compact " + getName() + getExtension() + "!", e);
+            future.completeExceptionally(e);
+         } finally {
+            compacting.set(false);
+         }
+      });
+      return future;
+   }
+
+   /**
+    * Get the amount of segments, including the one being written
+    *
+    * @return segments
+    */
+   public int getSegmentCount() {
+      synchronized (closedSegments) {
+         return closedSegments.size() + (activeSegment == null ? 0 : 1);
+      }
+   }
+
+   /**
+    * Get the amount of appends waiting to be written
+    *
+    * @return pending appends
+    */
+   public int getPending() { return queue.size(); }
+
+   /**
+    * Write and sync everything appended so far, wait for a running compaction and close the journal
+    */
+   @Override
+   public synchronized void close() {
+      // Appends check whether the journal is open under the same lock, so none can end up behind CLOSE
+      synchronized (queue) {
+         if (!open) return;
+         open = false;
+         queue.add(CLOSE);
+      }
+      try {
+         writer.join();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+
+      compactor.shutdown();
+      try {
+         compactor.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+      try {
+         channel.close();
+      } catch (IOException e) {
+         getPlugin().getLogger().warning("Failed to close " + getName() + getExtension() + "! Reason: " + e.getMessage());
+      }
+   }
+
+   private CompletableFuture<Void> enqueue(Append append) {
+      synchronized (queue) {
+         if (open) {
+            queue.add(append);
+            return append.future;
+         }
+      }
+      append.future.completeExceptionally(new IllegalStateException(getName() + getExtension() + " is closed"));
+      return append.future;
+   }
+
+   private void open() throws IOException {
+      File directory = getFile();
+      Files.createDirectories(directory.toPath());
+      List<JournalSegment> segments = JournalSegment.list(directory);
+      JournalSegment last = segments.isEmpty() ? new JournalSegment(directory, 1) : segments.remove(segments.size() - 1);
+
+      channel = FileChannel.open(last.getPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+      // Drop a record torn by a crash, appends continue after the last complete one
+      long valid = last.read(null, Long.MAX_VALUE);
+      channel.truncate(valid);
+      channel.position(valid);
+
+      synchronized (closedSegments) {
+         closedSegments.clear();
+         closedSegments.addAll(segments);
+         activeSegment = last;
+         durableBytes = valid;
+      }
+
+      compactor = Executors.newSingleThreadExecutor(runnable -> {
+         Thread thread = new Thread(runnable, "BONK-journal-compact-" + getName());
+         thread.setDaemon(true);
+         return thread;
+      });
+      writer = new Thread(this::write, "BONK-journal-" + getName());
+      writer.setDaemon(true);
+      open = true;
+      writer.start();
+   }
+
+   private void write() {
+      List<Append> batch = new ArrayList<>();
+      ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+      boolean closing = false;
+      while (!closing) {
+         try {
+            batch.add(queue.take());
+         } catch (InterruptedException e) {
+            return;
+         }
+         queue.drainTo(batch, MAX_BATCH - 1);
+         closing = batch.contains(CLOSE);
+
+         try {
+            writeBatch(batch, buffer);
+            for (Append append : batch) {
+               if (append != CLOSE) append.future.complete(null);
+            }
+         } catch (IOException | RuntimeException e) {
+            buffer.clear();
+            getPlugin().getLogger().log(Level.SEVERE, "Failed to write to " + getName() + getExtension() + "!", e);
+            for (Append append : batch) {
+               if (append != CLOSE) append.future.completeExceptionally(e);
+            }
+            discardUnsynced();
+         }
+         batch.clear();
+      }
+   }
+
+   /**
+    * Cut off what a failed batch left after the last synced record, replay would otherwise stop at
+    * the torn record and lose every append after it. Starts a new segment if that fails as well.
+    */
+   private void discardUnsynced() {
+      try {
+         channel.truncate(durableBytes);
+         channel.position(durableBytes);
+      } catch (IOException e) {
+         try {
+            roll();
+         } catch (IOException ex) {
+            getPlugin().getLogger().log(Level.SEVERE, "Failed to recover " + getName() + getExtension() + " from a failed write!", ex);
+         }
+      }
+   }
+
+   private void writeBatch(List<Append> batch, ByteBuffer buffer) throws IOException {
+      for (Append append : batch) {
+         byte[] record = append.record;
+         if (record == null) continue;
+         if (channel.position() + buffer.position() + record.length > segmentBytes && channel.position() + buffer.position() > 0) {
+            drain(buffer);
+            channel.force(false);
+            roll();
+         }
+         if (record.length > buffer.remaining()) {
+            drain(buffer);
+            if (record.length > buffer.capacity()) {
+               drain(ByteBuffer.wrap(record));
+               continue;
+            }
+         }
+         buffer.put(record);
+      }
+      drain(buffer);
+      // One sync for the whole batch
+      channel.force(false);
+      durableBytes = channel.position();
+   }
+
+   private void drain(ByteBuffer buffer) throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+         channel.write(buffer);
+      }
+      buffer.clear();
+   }
+
+   private void roll() throws IOException {
+      JournalSegment next = new JournalSegment(getFile(), activeSegment.getId() + 1);
+      FileChannel nextChannel = FileChannel.open(next.getPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+      channel.close();
+      channel = nextChannel;
+
+      int closed;
+      synchronized (closedSegments) {
+         closedSegments.add(activeSegment);
+         activeSegment = next;
+         durableBytes = 0;
+         closed = closedSegments.size();
+      }
+      if (compactionThreshold > 0 && closed >= compactionThreshold) scheduleCompaction();
+   }
+
+   private void compactNow() throws IOException {
+      List<JournalSegment> segments;
+      synchronized (closedSegments) {
+         segments = new ArrayList<>(closedSegments);
+      }
+      if (segments.size() < 2) return;
+
+      // Keys in the order they were last written, removed keys are dropped for good since no older segment is left
+      Map<String, byte[]> latest = new LinkedHashMap<>();
+      for (JournalSegment segment : segments) {
+         segment.read((key, value) -> {
+            latest.remove(key);
+            if (value != null) latest.put(key, value);
+         }, Long.MAX_VALUE);
+      }
+
+      JournalSegment compacted = segments.get(segments.size() - 1);
+      File compactedFile = compacted.getCompactedFile();
+      File temp = new File(compactedFile.getPath() + ".tmp");
+      try (FileChannel out = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+         ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+         for (Map.Entry<String, byte[]> entry : latest.entrySet()) {
+            byte[] record = JournalSegment.encode(entry.getKey(), entry.getValue());
+            if (record.length > buffer.remaining()) {
+               writeFully(out, buffer);
+               if (record.length > buffer.capacity()) {
+                  out.write(ByteBuffer.wrap(record));
+                  continue;
+               }
+            }
+            buffer.put(record);
+         }
+         writeFully(out, buffer);
+         out.force(true);
+      }
+      // Once the compacted file has its final name, opening the journal finishes the swap even after a crash
+      FileIO.move(temp, compactedFile);
+
+      synchronized (closedSegments) {
+         for (JournalSegment segment : segments) {
+            Files.deleteIfExists(segment.getPath());
+         }
+         FileIO.move(compactedFile, compacted.getFile());
+         closedSegments.removeAll(segments);
+         closedSegments.add(0, compacted);
+      }
+   }
+
+   private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+         out.write(buffer);
+      }
+      buffer.clear();
+   }
+
+   /**
+    * Encoded record waiting for the writer.
+    */
+   private static final class Append {
+
+      private final byte[] record;
+      private final CompletableFuture<Void> future;
+
+      private Append(byte[] record) {
+         this.record = record;
+         this.future = new CompletableFuture<>();
+      }
+
+   }
+
+}
@@ -0,0 +1,236 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.bfu4.bonk.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * JournalSegment - One file of a {@link JournalFile} and the encoding of its records
+ * <p>
+ * A record is its body length and the CRC32 of its body, followed by the body: the length of the
+ * key, the key, the length of the value plus one, or 0 for removals, and the value. Lengths in the
+ * body are varints, so small records only cost a few bytes on top of their key and value.
+ */
+final class JournalSegment {
+
+   private static final String EXTENSION = ".seg";
+   private static final String COMPACTED = ".compact";
+   private static final String TEMPORARY = ".tmp";
+   private static final int FRAME = 8;
+
+   private final long id;
+   private final File file;
+
+   JournalSegment(File directory, long id) {
+      this.id = id;
+      this.file = new File(directory, String.format("%020d", id) + EXTENSION);
+   }
+
+   long getId() { return id; }
+
+   File getFile() { return file; }
+
+   Path getPath() { return file.toPath(); }
+
+   /**
+    * Get the file a compaction up to this segment is written to before it replaces the segments
+    *
+    * @return compacted file
+    */
+   File getCompactedFile() { return new File(file.getParentFile(), String.format("%020d", id) + COMPACTED); }
+
+   /**
+    * Read the records of the segment
+    *
+    * @param consumer receives the key and value of every record, the value is null for removals
+    * @param limit amount of bytes to read at most
+    * @return length of the complete, intact records at the start of the segment
+    * @throws IOException if the segment can't be read
+    */
+   long read(BiConsumer<String, byte[]> consumer, long limit) throws IOException {
+      if (!file.exists()) return 0;
+      byte[] data = Files.readAllBytes(getPath());
+      return decode(data, (int) Math.min(data.length, limit), consumer);
+   }
+
+   @Override
+   public String toString() { return file.getName(); }
+
+   /**
+    * List the segments in a journal directory, oldest first. A compaction that was written
+    * completely but not yet swapped in is finished first, leftovers of others are removed.
+    *
+    * @param directory journal directory
+    * @return segments
+    * @throws IOException if the directory can't be read or cleaned up
+    */
+   static List<JournalSegment> list(File directory) throws IOException {
+      File[] files = directory.listFiles();
+      List<JournalSegment> segments = new ArrayList<>();
+      JournalSegment compacted = null;
+      if (files == null) return segments;
+
+      for (File child : files) {
+         String name = child.getName();
+         if (name.endsWith(TEMPORARY)) {
+            Files.deleteIfExists(child.toPath());
+         } else if (name.endsWith(EXTENSION)) {
+            segments.add(new JournalSegment(directory, parseId(name, EXTENSION)));
+         } else if (name.endsWith(COMPACTED)) {
+            compacted = new JournalSegment(directory, parseId(name, COMPACTED));
+         }
+      }
+
+      if (compacted != null) {
+         // The compaction is complete, the segments it replaces may be partially deleted already
+         for (JournalSegment segment : segments) {
+            if (segment.id <= compacted.id) Files.deleteIfExists(segment.getPath());
+         }
+         long compactedId = compacted.id;
+         segments.removeIf(segment -> segment.id <= compactedId);
+         FileIO.move(compacted.getCompactedFile(), compacted.file);
+         segments.add(compacted);
+      }
+      segments.sort(Comparator.comparingLong(JournalSegment::getId));
+      return segments;
+   }
+
+   /**
+    * Encode a record
+    *
+    * @param key key of the record
+    * @param value value of the record, null for a removal
+    * @return record
+    */
+   static byte[] encode(String key, byte[] value) {
+      byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+      int valueLength = value == null ? 0 : value.length + 1;
+      int bodyLength = varintSize(keyBytes.length) + keyBytes.length + varintSize(valueLength) + (value == null ? 0 : value.length);
+
+      byte[] record = new byte[FRAME + bodyLength];
+      int position = FRAME;
+      position = putVarint(record, position, keyBytes.length);
+      System.arraycopy(keyBytes, 0, record, position, keyBytes.length);
+      position += keyBytes.length;
+      position = putVarint(record, position, valueLength);
+      if (value != null) System.arraycopy(value, 0, record, position, value.length);
+
+      CRC32 crc = new CRC32();
+      crc.update(record, FRAME, bodyLength);
+      putInt(record, 0, bodyLength);
+      putInt(record, 4, (int) crc.getValue());
+      return record;
+   }
+
+   /**
+    * Decode records until the end of the data or the first incomplete or damaged record
+    *
+    * @param data records
+    * @param length amount of bytes to decode
+    * @param consumer receives the key and value of every record, may be null
+    * @return length of the complete, intact records
+    */
+   static long decode(byte[] data, int length, BiConsumer<String, byte[]> consumer) {
+      CRC32 crc = new CRC32();
+      int position = 0;
+      while (position + FRAME <= length) {
+         int bodyLength = getInt(data, position);
+         int checksum = getInt(data, position + 4);
+         int body = position + FRAME;
+         if (bodyLength <= 0 || bodyLength > length - body) break;
+         crc.reset();
+         crc.update(data, body, bodyLength);
+         if ((int) crc.getValue() != checksum) break;
+
+         if (consumer != null) {
+            int[] cursor = { body };
+            int keyLength = getVarint(data, cursor);
+            String key = new String(data, cursor[0], keyLength, StandardCharsets.UTF_8);
+            cursor[0] += keyLength;
+            int valueLength = getVarint(data, cursor);
+            byte[] value = null;
+            if (valueLength > 0) {
+               value = new byte[valueLength - 1];
+               System.arraycopy(data, cursor[0], value, 0, value.length);
+            }
+            consumer.accept(key, value);
+         }
+         position = body + bodyLength;
+      }
+      return position;
+   }
+
+   private static long parseId(String name, String suffix) {
+      return Long.parseLong(name.substring(0, name.length() - suffix.length()));
+   }
+
+   private static int varintSize(int value) {
+      int size = 1;
+      while ((value >>>= 7) != 0) size++;
+      return size;
+   }
+
+   private static int putVarint(byte[] data, int position, int value) {
+      while ((value & ~0x7F) != 0) {
+         data[position++] = (byte) ((value & 0x7F) | 0x80);
+         value >>>= 7;
+      }
+      data[position++] = (byte) value;
+      return position;
+   }
+
+   private static int getVarint(byte[] data, int[] cursor) {
+      int value = 0;
+      int shift = 0;
+      byte current;
+      do {
+         current = data[cursor[0]++];
+         value |= (current & 0x7F) << shift;
+         shift += 7;
+      } while ((current & 0x80) != 0);
+      return value;
+   }
+
+   private static void putInt(byte[] data, int position, int value) {
+      data[position] = (byte) (value >>> 24);
+      data[position + 1] = (byte) (value >>> 16);
+      data[position + 2] = (byte) (value >>> 8);
+      data[position + 3] = (byte) value;
+   }
+
+   private static int getInt(byte[] data, int position) {
+      return (data[position] & 0xFF) << 24 | (data[position + 1] & 0xFF) << 16 | (data[position + 2] & 0xFF) << 8 | data[position + 3] & 0xFF;
+   }
+
+}
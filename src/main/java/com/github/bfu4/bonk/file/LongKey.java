@@ -0,0 +1,61 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.bfu4.bonk.file;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+/**
+ * LongKey - Cached long value of a {@link YamlFile}
+ */
+public class LongKey extends ConfigKey {
+
+   private final long def;
+
+   LongKey(YamlFile yamlFile, String path, long def) {
+      super(yamlFile, path);
+      this.def = def;
+   }
+
+   /**
+    * Get the value
+    *
+    * @return value, or the default if it isn't set or isn't a number
+    */
+   public long get() { return cached().bits; }
+
+   /**
+    * Set the value in the configuration, the file still has to be saved
+    *
+    * @param value new value
+    */
+   public void set(long value) { write(value); }
+
+   @Override
+   Cached read(ConfigurationSection configuration, int generation) {
+      long value = configuration.getLong(getPath(), def);
+      return new Cached(generation, value, null);
+   }
+
+}
@@ -0,0 +1,63 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.bfu4.bonk.file;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * StringListKey - Cached string list value of a {@link YamlFile}
+ */
+public class StringListKey extends ConfigKey {
+
+   StringListKey(YamlFile yamlFile, String path) {
+      super(yamlFile, path);
+   }
+
+   /**
+    * Get the value. The list is shared between callers and can't be modified.
+    *
+    * @return value, empty if it isn't set
+    */
+   @SuppressWarnings("unchecked")
+   public List<String> get() { return (List<String>) cached().value; }
+
+   /**
+    * Set the value in the configuration, the file still has to be saved
+    *
+    * @param value new value
+    */
+   public void set(List<String> value) { write(new ArrayList<>(value)); }
+
+   @Override
+   Cached read(ConfigurationSection configuration, int generation) {
+      List<String> value = Collections.unmodifiableList(new ArrayList<>(configuration.getStringList(getPath())));
+      return new Cached(generation, 0, value);
+   }
+
+}
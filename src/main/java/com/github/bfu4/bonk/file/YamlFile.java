@@ -25,13 +25,28 @@
 package com.github.bfu4.bonk.file;
 
 import com.github.bfu4.bonk.PluginBase;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.YamlConfiguration;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Config -
@@ -43,6 +58,33 @@ public class YamlFile extends BaseFile {
 
    protected YamlConfiguration configuration;
 
+   /**
+    * Ticks to wait before writing a saved file, 0 if saves are written immediately.
+    */
+   private volatile long writeBehindTicks;
+   private final AtomicBoolean dirty;
+   private final AtomicBoolean writeScheduled;
+
+   /**
+    * Last write handed to {@link FileIO}, writes of the file and its snapshot are chained so they land in order.
+    */
+   private CompletableFuture<Void> pendingWrite;
+
+   /**
+    * State of the file on disk when it was last loaded or written, null if unknown.
+    */
+   private volatile FileState state;
+
+   /**
+    * Bumped whenever the configuration is replaced or changed through a key, invalidating the values cached by {@link ConfigKey}s.
+    */
+   private final AtomicInteger generation;
+
+   /**
+    * Whether parsed configurations are cached in a binary snapshot, see {@link YamlFile#enableSnapshot()}.
+    */
+   private volatile boolean snapshot;
+
    /**
     * Create new yaml file
     *
@@ -50,7 +92,22 @@ public class YamlFile extends BaseFile {
     * @param name      name of the file
     */
    public YamlFile(PluginBase plugin, String name) {
-      super(plugin, name, ".yml");
+      this(plugin, plugin.getDataFolder(), name);
+   }
+
+   /**
+    * Create new yaml file in a folder other than the data folder of the plugin
+    *
+    * @param plugin     plugin that the file belongs to
+    * @param dataFolder folder which contains the file
+    * @param name       name of the file
+    */
+   public YamlFile(PluginBase plugin, File dataFolder, String name) {
+      super(plugin, dataFolder, name, ".yml");
+      this.dirty = new AtomicBoolean();
+      this.writeScheduled = new AtomicBoolean();
+      this.pendingWrite = CompletableFuture.completedFuture(null);
+      this.generation = new AtomicInteger();
    }
 
    /**
@@ -58,7 +115,161 @@ public class YamlFile extends BaseFile {
     */
    @Override
    public void reload() {
-      configuration = YamlConfiguration.loadConfiguration(getFile());
+      File file = getFile();
+      if (!file.exists()) {
+         setConfiguration(new YamlConfiguration());
+         state = null;
+         return;
+      }
+      long size = file.length();
+      long modified = file.lastModified();
+      try {
+         byte[] data = Files.readAllBytes(file.toPath());
+         load(data, hash(data), size, modified);
+      } catch (IOException | InvalidConfigurationException e) {
+         getPlugin().getLogger().warning("Failed to load " + getName() + getExtension() + "! Error: " + e.getLocalizedMessage() + ".");
+         setConfiguration(new YamlConfiguration());
+         state = null;
+      }
+   }
+
+   /**
+    * Reload the file only if it changed since it was last loaded or written. Files with the same size
+    * and modification time are skipped without being read, files with the same contents are read and
+    * hashed but not parsed again.
+    *
+    * @return true if the file changed and was reloaded
+    */
+   public boolean reloadIfChanged() {
+      FileState previous = state;
+      if (previous == null || configuration == null) {
+         reload();
+         return true;
+      }
+
+      File file = getFile();
+      long size = file.length();
+      long modified = file.lastModified();
+      if (previous.matches(size, modified)) return false;
+
+      try {
+         byte[] data = Files.readAllBytes(file.toPath());
+         byte[] hash = hash(data);
+         if (Arrays.equals(hash, previous.hash)) {
+            state = new FileState(size, modified, hash);
+            return false;
+         }
+         load(data, hash, size, modified);
+      } catch (IOException | InvalidConfigurationException e) {
+         getPlugin().getLogger().warning("Failed to load " + getName() + getExtension() + "! Error: " + e.getLocalizedMessage() + ".");
+         setConfiguration(new YamlConfiguration());
+         state = null;
+      }
+      return true;
+   }
+
+   /**
+    * Reload the files that changed since they were last loaded or written
+    *
+    * @param files files to check
+    * @return files that changed and were reloaded
+    */
+   public static List<YamlFile> reloadChanged(Collection<? extends YamlFile> files) {
+      List<YamlFile> changed = new ArrayList<>();
+      for (YamlFile file : files) {
+         if (file.reloadIfChanged()) changed.add(file);
+      }
+      return changed;
+   }
+
+   /**
+    * Read and parse the file if it changed, without touching the current configuration.
+    * Skipped while there are unwritten saves, which would overwrite the file anyway.
+    *
+    * @return action swapping in the new configuration, or null if the file didn't change
+    */
+   @Override
+   protected Runnable prepareReload() {
+      File file = getFile();
+      FileState previous = state;
+      if (dirty.get() || !file.exists()) return null;
+      long size = file.length();
+      long modified = file.lastModified();
+      if (previous != null && previous.matches(size, modified)) return null;
+
+      try {
+         byte[] data = Files.readAllBytes(file.toPath());
+         byte[] hash = hash(data);
+         if (previous != null && Arrays.equals(hash, previous.hash)) return null;
+         YamlConfiguration loaded = parse(data, hash);
+         FileState loadedState = new FileState(size, modified, hash);
+         return () -> {
+            setConfiguration(loaded);
+            state = loadedState;
+         };
+      } catch (IOException | InvalidConfigurationException e) {
+         getPlugin().getLogger().warning("Failed to load " + getName() + getExtension() + "! Error: " + e.getLocalizedMessage() + ".");
+         return null;
+      }
+   }
+
+   /**
+    * Get the values of the configuration, without the sections containing them
+    *
+    * @return values by full key
+    */
+   @Override
+   protected Map<String, Object> getValues() {
+      Map<String, Object> values = new HashMap<>();
+      getConfiguration().getValues(true).forEach((key, value) -> {
+         if (!(value instanceof ConfigurationSection)) values.put(key, value);
+      });
+      return values;
+   }
+
+   private void load(byte[] data, byte[] hash, long size, long modified) throws InvalidConfigurationException {
+      setConfiguration(parse(data, hash));
+      state = new FileState(size, modified, hash);
+   }
+
+   /**
+    * Parse the yaml, or load the snapshot of it if it's enabled and up to date
+    *
+    * @param data yaml
+    * @param hash hash of the yaml
+    * @return configuration
+    * @throws InvalidConfigurationException if the yaml is invalid
+    */
+   private YamlConfiguration parse(byte[] data, byte[] hash) throws InvalidConfigurationException {
+      if (!snapshot) return parse(data);
+
+      File snapshotFile = getSnapshotFile();
+      if (snapshotFile.exists()) {
+         try {
+            YamlConfiguration loaded = YamlSnapshot.decode(Files.readAllBytes(snapshotFile.toPath()), hash);
+            if (loaded != null) return loaded;
+         } catch (IOException e) {
+            // Fall back to the yaml
+         }
+      }
+
+      YamlConfiguration loaded = parse(data);
+      byte[] encoded = YamlSnapshot.encode(loaded, hash);
+      if (encoded != null) {
+         enqueue(() -> FileIO.writeAtomically(snapshotFile, encoded), "Failed to write snapshot of " + getName() + getExtension() + "!");
+      }
+      return loaded;
+   }
+
+   private void setConfiguration(YamlConfiguration configuration) {
+      this.configuration = configuration;
+      generation.incrementAndGet();
+   }
+
+   private static YamlConfiguration parse(byte[] data) throws InvalidConfigurationException {
+      YamlConfiguration loaded = new YamlConfiguration();
+      loaded.loadFromString(new String(data, StandardCharsets.UTF_8));
+      return loaded;
    }
 
    /**
@@ -100,13 +311,7 @@ public class YamlFile extends BaseFile {
          }
       }
 
-      if (configuration == null) configuration = YamlConfiguration.loadConfiguration(getFile());
-
-      try {
-         configuration.load(getFile());
-      } catch (IOException | InvalidConfigurationException e) {
-         getPlugin().getLogger().warning("Failed to load " + getName() + getExtension() + "! Error: " + e.getLocalizedMessage() + ".");
-      }
+      reload();
    }
 
    /**
@@ -115,18 +320,236 @@ public class YamlFile extends BaseFile {
     * @return configuration
     */
    public YamlConfiguration getConfiguration() {
-      if (configuration == null) {
-         configuration = YamlConfiguration.loadConfiguration(getFile());
-      }
+      if (configuration == null) reload();
       return configuration;
    }
 
+   /**
+    * Cache the parsed configuration in a binary snapshot next to the file, which is loaded
+    * instead of parsing the yaml again as long as the yaml is unchanged. Outdated or damaged
+    * snapshots are ignored and replaced. Enable this before the file is first loaded.
+    */
+   public void enableSnapshot() { this.snapshot = true; }
+
+   /**
+    * Stop using and delete the binary snapshot
+    */
+   public void disableSnapshot() {
+      this.snapshot = false;
+      File snapshotFile = getSnapshotFile();
+      enqueue(() -> Files.deleteIfExists(snapshotFile.toPath()), "Failed to delete snapshot of " + getName() + getExtension() + "!");
+   }
+
+   /**
+    * Get the file holding the binary snapshot of the configuration
+    *
+    * @return snapshot file, which may not exist
+    */
+   public File getSnapshotFile() {
+      return new File(getDataFolder(), "." + getName() + getExtension() + ".snapshot");
+   }
+
+   /**
+    * Get a cached handle to an integer value
+    *
+    * @param path path of the value
+    * @param def value used when it isn't set
+    * @return key
+    */
+   public IntKey intKey(String path, int def) { return new IntKey(this, path, def); }
+
+   /**
+    * Get a cached handle to a long value
+    *
+    * @param path path of the value
+    * @param def value used when it isn't set
+    * @return key
+    */
+   public LongKey longKey(String path, long def) { return new LongKey(this, path, def); }
+
+   /**
+    * Get a cached handle to a double value
+    *
+    * @param path path of the value
+    * @param def value used when it isn't set
+    * @return key
+    */
+   public DoubleKey doubleKey(String path, double def) { return new DoubleKey(this, path, def); }
+
+   /**
+    * Get a cached handle to a boolean value
+    *
+    * @param path path of the value
+    * @param def value used when it isn't set
+    * @return key
+    */
+   public BooleanKey booleanKey(String path, boolean def) { return new BooleanKey(this, path, def); }
+
+   /**
+    * Get a cached handle to a string value
+    *
+    * @param path path of the value
+    * @param def value used when it isn't set
+    * @return key
+    */
+   public StringKey stringKey(String path, String def) { return new StringKey(this, path, def); }
+
+   /**
+    * Get a cached handle to a string list value
+    *
+    * @param path path of the value
+    * @return key
+    */
+   public StringListKey stringListKey(String path) { return new StringListKey(this, path); }
+
+   /**
+    * Make the keys of this file read their values again. Reloads do this on their own,
+    * call it after changing the configuration directly through {@link YamlFile#getConfiguration()}.
+    */
+   public void invalidateKeys() { generation.incrementAndGet(); }
+
+   /**
+    * Get the generation of the configuration, which changes whenever cached values become stale
+    *
+    * @return generation
+    */
+   int getGeneration() { return generation.get(); }
+
+   /**
+    * Save the file. With write-behind enabled this only marks the file dirty, see {@link YamlFile#enableWriteBehind(long)}.
+    */
    public void save() {
+      if (writeBehindTicks > 0) {
+         markDirty();
+         return;
+      }
       try {
-         getConfiguration().save(getFile());
+         writeNow(getConfiguration().saveToString());
       } catch (IOException e) {
          getPlugin().getLogger().warning("Failed to save file! Reason: " + e.getMessage());
       }
    }
 
+   /**
+    * Coalesce saves: instead of writing on every {@link YamlFile#save()}, the file is marked dirty and
+    * written once the delay passed, however often it was saved in between. The configuration is
+    * serialized on the main thread and written to disk on a background thread, through a temporary
+    * file that is renamed over the old one.
+    *
+    * @param delayTicks ticks to wait after the first unwritten save before writing
+    */
+   public void enableWriteBehind(long delayTicks) {
+      this.writeBehindTicks = Math.max(1, delayTicks);
+   }
+
+   /**
+    * Go back to writing on every {@link YamlFile#save()}, flushing unwritten changes first.
+    */
+   public void disableWriteBehind() {
+      this.writeBehindTicks = 0;
+      flush();
+   }
+
+   /**
+    * Mark the configuration as changed. With write-behind enabled, a write is scheduled if none is yet.
+    */
+   public void markDirty() {
+      dirty.set(true);
+      long delay = writeBehindTicks;
+      if (delay > 0 && writeScheduled.compareAndSet(false, true)) {
+         getPlugin().getServer().getScheduler().runTaskLater(getPlugin(), () -> {
+            writeScheduled.set(false);
+            if (dirty.getAndSet(false)) write(getConfiguration().saveToString());
+         }, delay);
+      }
+   }
+
+   /**
+    * Check if there are changes that haven't been handed off for writing yet
+    *
+    * @return true if dirty
+    */
+   public boolean isDirty() { return dirty.get(); }
+
+   /**
+    * Write unwritten changes and wait for all pending writes of this file to finish.
+    * Call this from {@link PluginBase#onDisable()} for files with write-behind enabled.
+    */
+   public void flush() {
+      // Failed writes are logged and complete normally
+      flushAsync().join();
+   }
+
+   /**
+    * Hand unwritten changes to the file IO thread without waiting for them to be written.
+    * The configuration is serialized on the calling thread.
+    *
+    * @return future completed once all pending writes of this file finished
+    */
+   public CompletableFuture<Void> flushAsync() {
+      if (dirty.getAndSet(false)) return write(getConfiguration().saveToString());
+      synchronized (this) {
+         return pendingWrite;
+      }
+   }
+
+   private CompletableFuture<Void> write(String data) {
+      return enqueue(() -> writeNow(data), "Failed to save file!");
+   }
+
+   private synchronized CompletableFuture<Void> enqueue(FileIO.IOTask task, String failure) {
+      pendingWrite = pendingWrite.thenCompose(previous -> FileIO.run(task))
+         .exceptionally(t -> {
+            getPlugin().getLogger().warning(failure + " Reason: " + t.getMessage());
+            return null;
+         });
+      return pendingWrite;
+   }
+
+   private void writeNow(String data) throws IOException {
+      byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+      File file = getFile();
+      FileIO.writeAtomically(file, bytes);
+      // Remember what was written, so our own writes don't count as changes
+      state = new FileState(file.length(), file.lastModified(), hash(bytes));
+   }
+
+   private static byte[] hash(byte[] data) {
+      try {
+         return MessageDigest.getInstance("SHA-256").digest(data);
+      } catch (NoSuchAlgorithmException e) {
+         // Every JVM is required to support SHA-256
+         throw new IllegalStateException(e);
+      }
+   }
+
+   /**
+    * Size, modification time and content hash of the file at some point.
+    */
+   private static final class FileState {
+
+      /**
+       * Modification times within this window of the check can't be trusted,
+       * the file may change again without the time changing.
+       */
+      private static final long RACY_WINDOW = 2000;
+
+      private final long size;
+      private final long modified;
+      private final byte[] hash;
+      private final long checkedAt;
+
+      private FileState(long size, long modified, byte[] hash) {
+         this.size = size;
+         this.modified = modified;
+         this.hash = hash;
+         this.checkedAt = System.currentTimeMillis();
+      }
+
+      private boolean matches(long size, long modified) {
+         return this.size == size && this.modified == modified && modified < checkedAt - RACY_WINDOW;
+      }
+
+   }
+
 }
\ No newline at end of file
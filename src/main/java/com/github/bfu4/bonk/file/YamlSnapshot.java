@@ -0,0 +1,249 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.bfu4.bonk.file;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * YamlSnapshot - Compact binary form of a parsed {@link YamlConfiguration}
+ * <p>
+ * A snapshot stores the hash of the yaml it was made from, so it is only used while the yaml is
+ * unchanged, and ends with a checksum, so a damaged snapshot is ignored instead of loaded.
+ * Only the types yaml parses into are supported: sections, maps, lists, strings, numbers and booleans.
+ */
+final class YamlSnapshot {
+
+   private static final int MAGIC = 0x424F4E4B;
+   private static final byte VERSION = 1;
+
+   private static final byte SECTION = 0;
+   private static final byte MAP = 1;
+   private static final byte LIST = 2;
+   private static final byte STRING = 3;
+   private static final byte INT = 4;
+   private static final byte LONG = 5;
+   private static final byte DOUBLE = 6;
+   private static final byte BOOLEAN = 7;
+   private static final byte NULL = 8;
+
+   private YamlSnapshot() { }
+
+   /**
+    * Encode a configuration
+    *
+    * @param configuration configuration to encode
+    * @param hash hash of the yaml the configuration was parsed from
+    * @return snapshot, or null if the configuration holds values a snapshot can't store
+    */
+   static byte[] encode(YamlConfiguration configuration, byte[] hash) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+      DataOutputStream out = new DataOutputStream(bytes);
+      try {
+         out.writeInt(MAGIC);
+         out.writeByte(VERSION);
+         out.writeByte(hash.length);
+         out.write(hash);
+         String header = configuration.options().header();
+         out.writeBoolean(header != null);
+         if (header != null) writeString(out, header);
+         if (!writeSection(out, configuration)) return null;
+
+         CRC32 crc = new CRC32();
+         crc.update(bytes.toByteArray());
+         out.writeInt((int) crc.getValue());
+      } catch (IOException e) {
+         // Writing to memory doesn't fail
+         throw new IllegalStateException(e);
+      }
+      return bytes.toByteArray();
+   }
+
+   /**
+    * Decode a snapshot
+    *
+    * @param data snapshot
+    * @param hash hash of the current yaml
+    * @return configuration, or null if the snapshot was made from other yaml or is damaged
+    */
+   static YamlConfiguration decode(byte[] data, byte[] hash) {
+      if (data.length < 4) return null;
+      CRC32 crc = new CRC32();
+      crc.update(data, 0, data.length - 4);
+      ByteBuffer buffer = ByteBuffer.wrap(data);
+      if (buffer.getInt(data.length - 4) != (int) crc.getValue()) return null;
+
+      try {
+         if (buffer.getInt() != MAGIC || buffer.get() != VERSION) return null;
+         byte[] snapshotHash = new byte[buffer.get() & 0xFF];
+         buffer.get(snapshotHash);
+         if (!Arrays.equals(snapshotHash, hash)) return null;
+
+         YamlConfiguration configuration = new YamlConfiguration();
+         if (buffer.get() != 0) configuration.options().header(readString(buffer));
+         if (buffer.get() != SECTION) return null;
+         readSection(buffer, configuration);
+         return configuration;
+      } catch (BufferUnderflowException | IllegalArgumentException e) {
+         return null;
+      }
+   }
+
+   private static boolean writeSection(DataOutputStream out, ConfigurationSection section) throws IOException {
+      Map<String, Object> values = section.getValues(false);
+      out.writeByte(SECTION);
+      out.writeInt(values.size());
+      for (Map.Entry<String, Object> entry : values.entrySet()) {
+         writeString(out, entry.getKey());
+         if (!writeValue(out, entry.getValue())) return false;
+      }
+      return true;
+   }
+
+   private static boolean writeValue(DataOutputStream out, Object value) throws IOException {
+      if (value instanceof ConfigurationSection) return writeSection(out, (ConfigurationSection) value);
+      if (value == null) {
+         out.writeByte(NULL);
+      } else if (value instanceof String) {
+         out.writeByte(STRING);
+         writeString(out, (String) value);
+      } else if (value instanceof Integer) {
+         out.writeByte(INT);
+         out.writeInt((Integer) value);
+      } else if (value instanceof Long) {
+         out.writeByte(LONG);
+         out.writeLong((Long) value);
+      } else if (value instanceof Double) {
+         out.writeByte(DOUBLE);
+         out.writeDouble((Double) value);
+      } else if (value instanceof Boolean) {
+         out.writeByte(BOOLEAN);
+         out.writeBoolean((Boolean) value);
+      } else if (value instanceof List) {
+         List<?> list = (List<?>) value;
+         out.writeByte(LIST);
+         out.writeInt(list.size());
+         for (Object element : list) {
+            if (!writeValue(out, element)) return false;
+         }
+      } else if (value instanceof Map) {
+         Map<?, ?> map = (Map<?, ?>) value;
+         out.writeByte(MAP);
+         out.writeInt(map.size());
+         for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (!(entry.getKey() instanceof String)) return false;
+            writeString(out, (String) entry.getKey());
+            if (!writeValue(out, entry.getValue())) return false;
+         }
+      } else {
+         // Dates, big numbers and serialized objects are left to yaml
+         return false;
+      }
+      return true;
+   }
+
+   private static void readSection(ByteBuffer buffer, ConfigurationSection section) {
+      int size = readSize(buffer);
+      for (int i = 0; i < size; i++) {
+         String key = readString(buffer);
+         byte type = buffer.get();
+         if (type == SECTION) {
+            readSection(buffer, section.createSection(key));
+         } else {
+            section.set(key, readValue(buffer, type));
+         }
+      }
+   }
+
+   private static Object readValue(ByteBuffer buffer, byte type) {
+      switch (type) {
+         case NULL:
+            return null;
+         case STRING:
+            return readString(buffer);
+         case INT:
+            return buffer.getInt();
+         case LONG:
+            return buffer.getLong();
+         case DOUBLE:
+            return buffer.getDouble();
+         case BOOLEAN:
+            return buffer.get() != 0;
+         case LIST: {
+            int size = readSize(buffer);
+            List<Object> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+               list.add(readValue(buffer, buffer.get()));
+            }
+            return list;
+         }
+         case MAP: {
+            int size = readSize(buffer);
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (int i = 0; i < size; i++) {
+               String key = readString(buffer);
+               map.put(key, readValue(buffer, buffer.get()));
+            }
+            return map;
+         }
+         default:
+            throw new IllegalArgumentException("Unknown value type " + type);
+      }
+   }
+
+   private static void writeString(DataOutputStream out, String value) throws IOException {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+   }
+
+   private static String readString(ByteBuffer buffer) {
+      int length = readSize(buffer);
+      String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+      buffer.position(buffer.position() + length);
+      return value;
+   }
+
+   private static int readSize(ByteBuffer buffer) {
+      int size = buffer.getInt();
+      // Sizes can't exceed what's left, a larger one means the snapshot is damaged
+      if (size < 0 || size > buffer.remaining()) throw new IllegalArgumentException("Invalid size " + size);
+      return size;
+   }
+
+}
@@ -0,0 +1,375 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.bfu4.bonk.listener;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.RegisteredListener;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.logging.Level;
+
+/**
+ * AsyncEventPipeline - Hands snapshots of an event to worker threads through preallocated ring buffers
+ * <p>
+ * On the main thread the pipeline only copies what the consumer needs out of the event and stores
+ * the copy in a ring buffer; the consumer then runs on its own worker, in batches. Snapshots must
+ * not hold on to the event or any other live game object, as the worker reads them later, off the
+ * main thread. Each worker has its own ring, and snapshots are spread over the workers round robin,
+ * or by a partition key, which keeps the snapshots of one key in order.
+ * <p>
+ * Register it through {@link com.github.bfu4.bonk.PluginBase#registerListener(String, Listener, String...)}
+ * like any other listener, and unregister it in {@link com.github.bfu4.bonk.PluginBase#onDisable()}
+ * so the workers consume what is left.
+ *
+ * <pre>
+ * plugin.registerListener("stats", AsyncEventPipeline.builder(BlockBreakEvent.class,
+ *       event -&gt; new BreakRecord(event.getPlayer().getUniqueId(), event.getBlock().getType()), records -&gt; ...)
+ *    .priority(EventPriority.MONITOR)
+ *    .ignoreCancelled(true)
+ *    .workers(2)
+ *    .build());
+ * </pre>
+ *
+ * @param <E> type of event
+ * @param <S> type of snapshot
+ */
+public class AsyncEventPipeline<E extends Event, S> implements Listener {
+
+   private static final long STOP_TIMEOUT_MILLIS = 5000;
+
+   private final Class<E> eventType;
+   private final Function<? super E, ? extends S> snapshot;
+   private final Function<? super S, ?> partition;
+   private final SnapshotConsumer<S> consumer;
+   private final EventPriority priority;
+   private final boolean ignoreCancelled;
+   private final int workers;
+   private final int bufferSize;
+   private final int batchSize;
+   private final WaitStrategy waitStrategy;
+   private final OverflowPolicy overflowPolicy;
+
+   private final AtomicInteger next;
+   private volatile List<EventRing<S>> rings;
+   private Plugin plugin;
+
+   private AsyncEventPipeline(Builder<E, S> builder) {
+      this.eventType = builder.eventType;
+      this.snapshot = builder.snapshot;
+      this.partition = builder.partition;
+      this.consumer = builder.consumer;
+      this.priority = builder.priority;
+      this.ignoreCancelled = builder.ignoreCancelled;
+      this.workers = builder.workers;
+      this.bufferSize = builder.bufferSize;
+      this.batchSize = builder.batchSize;
+      this.waitStrategy = builder.waitStrategy;
+      this.overflowPolicy = builder.overflowPolicy;
+      this.next = new AtomicInteger();
+      this.rings = Collections.emptyList();
+   }
+
+   /**
+    * Start building an async pipeline
+    *
+    * @param eventType event to hand off
+    * @param snapshot copies what the consumer needs out of an event, on the thread firing it. Returning null skips the event.
+    * @param consumer consumer of the snapshots
+    * @param <E> type of event
+    * @param <S> type of snapshot
+    * @return builder
+    */
+   public static <E extends Event, S> Builder<E, S> builder(Class<E> eventType, Function<? super E, ? extends S> snapshot, SnapshotConsumer<S> consumer) {
+      return new Builder<>(eventType, snapshot, consumer);
+   }
+
+   /**
+    * Get the amount of snapshots published to the workers
+    *
+    * @return published snapshots
+    */
+   public long getPublished() {
+      long published = 0;
+      for (EventRing<S> ring : rings) {
+         published += ring.getPublished();
+      }
+      return published;
+   }
+
+   /**
+    * Get the amount of snapshots waiting for a worker
+    *
+    * @return backlog
+    */
+   public long getBacklog() {
+      long backlog = 0;
+      for (EventRing<S> ring : rings) {
+         backlog += ring.getBacklog();
+      }
+      return backlog;
+   }
+
+   /**
+    * Get the amount of snapshots dropped because a ring buffer was full
+    *
+    * @return dropped snapshots
+    */
+   public long getDropped() {
+      long dropped = 0;
+      for (EventRing<S> ring : rings) {
+         dropped += ring.getDropped();
+      }
+      return dropped;
+   }
+
+   /**
+    * Register the handler publishing the snapshots and start the workers
+    *
+    * @param plugin plugin the pipeline is registered to
+    * @return registered handlers
+    */
+   synchronized Map<HandlerList, List<RegisteredListener>> start(Plugin plugin) {
+      if (!rings.isEmpty()) throw new IllegalStateException("Async pipeline for " + eventType.getSimpleName() + " is registered already");
+      this.plugin = plugin;
+      EventRing<S>[] created = newRings(workers);
+      for (int i = 0; i < workers; i++) {
+         created[i] = new EventRing<>(bufferSize, batchSize, waitStrategy, overflowPolicy, consumer, this::failed,
+            "BONK-event-" + plugin.getName() + "-" + eventType.getSimpleName() + "-" + i);
+         created[i].start();
+      }
+      rings = Collections.unmodifiableList(Arrays.asList(created));
+
+      RegisteredListener registered = new RegisteredListener(this, (listener, event) -> publish(event), priority, plugin, ignoreCancelled);
+      HandlerList handlerList = ListenerRegistry.handlerListOf(eventType);
+      handlerList.register(registered);
+      return Collections.singletonMap(handlerList, Collections.singletonList(registered));
+   }
+
+   /**
+    * Stop the workers once they consumed everything published so far
+    */
+   synchronized void stop() {
+      List<EventRing<S>> stopping = rings;
+      rings = Collections.emptyList();
+      for (EventRing<S> ring : stopping) {
+         ring.stop(STOP_TIMEOUT_MILLIS);
+      }
+   }
+
+   private void publish(Event event) {
+      // Handler lists of parent events also call this for other events
+      if (!eventType.isInstance(event)) return;
+      List<EventRing<S>> current = rings;
+      if (current.isEmpty()) return;
+      S copy = snapshot.apply(eventType.cast(event));
+      if (copy == null) return;
+      int index = partition == null
+         ? next.getAndIncrement() & Integer.MAX_VALUE
+         : Objects.hashCode(partition.apply(copy)) & Integer.MAX_VALUE;
+      current.get(index % current.size()).publish(copy);
+   }
+
+   private void failed(RuntimeException e) {
+      plugin.getLogger().log(Level.SEVERE, "Failed to consume a batch of " + eventType.getSimpleName() + "!", e);
+   }
+
+   @SuppressWarnings("unchecked")
+   private static <S> EventRing<S>[] newRings(int size) {
+      return (EventRing<S>[]) new EventRing<?>[size];
+   }
+
+   /**
+    * What a worker does while its ring buffer is empty
+    */
+   public enum WaitStrategy {
+      /**
+       * Park until a snapshot is published. Uses no CPU while idle, but publishing has to wake the worker.
+       */
+      BLOCKING,
+      /**
+       * Spin briefly, then yield, then sleep for short intervals. Cheap for both sides, the default.
+       */
+      SLEEPING,
+      /**
+       * Spin briefly, then keep yielding. Lower latency, but keeps a core busy.
+       */
+      YIELDING,
+      /**
+       * Keep spinning. Lowest latency, but uses a whole core per worker.
+       */
+      BUSY_SPIN
+   }
+
+   /**
+    * What happens to a snapshot when its ring buffer is full
+    */
+   public enum OverflowPolicy {
+      /**
+       * Drop the snapshot and count it, the default. Never slows the main thread down.
+       */
+      DROP,
+      /**
+       * Wait for the worker to free a slot. No snapshot is lost, but a slow consumer stalls the thread firing the event.
+       */
+      BLOCK
+   }
+
+   /**
+    * Options of an {@link AsyncEventPipeline}
+    *
+    * @param <E> type of event
+    * @param <S> type of snapshot
+    */
+   public static final class Builder<E extends Event, S> {
+
+      private final Class<E> eventType;
+      private final Function<? super E, ? extends S> snapshot;
+      private final SnapshotConsumer<S> consumer;
+      private Function<? super S, ?> partition;
+      private EventPriority priority = EventPriority.MONITOR;
+      private boolean ignoreCancelled;
+      private int workers = 1;
+      private int bufferSize = 4096;
+      private int batchSize = 256;
+      private WaitStrategy waitStrategy = WaitStrategy.SLEEPING;
+      private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+
+      private Builder(Class<E> eventType, Function<? super E, ? extends S> snapshot, SnapshotConsumer<S> consumer) {
+         this.eventType = eventType;
+         this.snapshot = snapshot;
+         this.consumer = consumer;
+      }
+
+      /**
+       * Set the priority the snapshots are taken at, MONITOR by default
+       *
+       * @param priority priority
+       * @return this builder
+       */
+      public Builder<E, S> priority(EventPriority priority) {
+         this.priority = priority;
+         return this;
+      }
+
+      /**
+       * Skip events that are cancelled when the snapshot would be taken
+       *
+       * @param ignoreCancelled true to skip cancelled events
+       * @return this builder
+       */
+      public Builder<E, S> ignoreCancelled(boolean ignoreCancelled) {
+         this.ignoreCancelled = ignoreCancelled;
+         return this;
+      }
+
+      /**
+       * Set the amount of worker threads, 1 by default
+       *
+       * @param workers amount of workers
+       * @return this builder
+       */
+      public Builder<E, S> workers(int workers) {
+         this.workers = Math.max(1, workers);
+         return this;
+      }
+
+      /**
+       * Send snapshots with the same key to the same worker, so they are consumed in order
+       *
+       * @param partition key of a snapshot, e.g. the player's UUID
+       * @return this builder
+       */
+      public Builder<E, S> partition(Function<? super S, ?> partition) {
+         this.partition = partition;
+         return this;
+      }
+
+      /**
+       * Set the slots of each worker's ring buffer, rounded up to a power of two, 4096 by default
+       *
+       * @param bufferSize slots per ring buffer
+       * @return this builder
+       */
+      public Builder<E, S> bufferSize(int bufferSize) {
+         int size = Math.max(2, Math.min(bufferSize, 1 << 30));
+         this.bufferSize = Integer.highestOneBit(size - 1) << 1;
+         return this;
+      }
+
+      /**
+       * Set the most snapshots handed to the consumer at once, 256 by default
+       *
+       * @param batchSize largest batch
+       * @return this builder
+       */
+      public Builder<E, S> batchSize(int batchSize) {
+         this.batchSize = Math.max(1, batchSize);
+         return this;
+      }
+
+      /**
+       * Set what the workers do while there is nothing to consume, {@link WaitStrategy#SLEEPING} by default
+       *
+       * @param waitStrategy wait strategy
+       * @return this builder
+       */
+      public Builder<E, S> waitStrategy(WaitStrategy waitStrategy) {
+         this.waitStrategy = waitStrategy;
+         return this;
+      }
+
+      /**
+       * Set what happens when a ring buffer is full, {@link OverflowPolicy#DROP} by default
+       *
+       * @param overflowPolicy overflow policy
+       * @return this builder
+       */
+      public Builder<E, S> overflowPolicy(OverflowPolicy overflowPolicy) {
+         this.overflowPolicy = overflowPolicy;
+         return this;
+      }
+
+      /**
+       * Create the pipeline
+       *
+       * @return async pipeline, ready to be registered
+       */
+      public AsyncEventPipeline<E, S> build() {
+         return new AsyncEventPipeline<>(this);
+      }
+
+   }
+
+}
@@ -0,0 +1,254 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.bfu4.bonk.listener;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.RegisteredListener;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.logging.Level;
+
+/**
+ * CoalescingListener - Collects a frequent event and hands the latest one per key to a {@link BatchHandler} once per tick
+ * <p>
+ * Meant for events like player movement, where only the latest state matters: with many players,
+ * the handler runs once per tick instead of once per event. Events can also be sampled, so only
+ * a share of them is considered at all. Register it through
+ * {@link com.github.bfu4.bonk.PluginBase#registerListener(String, Listener, String...)} like any other listener.
+ *
+ * <pre>
+ * plugin.registerListener("movement", CoalescingListener.builder(PlayerMoveEvent.class, PlayerEvent::getPlayer, moves -&gt; ...)
+ *    .priority(EventPriority.MONITOR)
+ *    .ignoreCancelled(true)
+ *    .build());
+ * </pre>
+ *
+ * @param <K> key the events are collapsed by
+ * @param <E> type of event
+ */
+public class CoalescingListener<K, E extends Event> implements Listener {
+
+   private final Class<E> eventType;
+   private final Function<? super E, ? extends K> key;
+   private final BatchHandler<K, E> handler;
+   private final EventPriority priority;
+   private final boolean ignoreCancelled;
+   private final long intervalTicks;
+   private final double sampleRate;
+
+   private final Object lock;
+   private final LongAdder received;
+   private final LongAdder delivered;
+   private Map<K, E> pending;
+   private Plugin plugin;
+   private BukkitTask task;
+
+   private CoalescingListener(Builder<K, E> builder) {
+      this.eventType = builder.eventType;
+      this.key = builder.key;
+      this.handler = builder.handler;
+      this.priority = builder.priority;
+      this.ignoreCancelled = builder.ignoreCancelled;
+      this.intervalTicks = builder.intervalTicks;
+      this.sampleRate = builder.sampleRate;
+      this.lock = new Object();
+      this.received = new LongAdder();
+      this.delivered = new LongAdder();
+      this.pending = new LinkedHashMap<>();
+   }
+
+   /**
+    * Start building a coalescing listener
+    *
+    * @param eventType event to collect
+    * @param key key to collapse the events by, e.g. the player
+    * @param handler handler receiving the batches
+    * @param <K> type of key
+    * @param <E> type of event
+    * @return builder
+    */
+   public static <K, E extends Event> Builder<K, E> builder(Class<E> eventType, Function<? super E, ? extends K> key, BatchHandler<K, E> handler) {
+      return new Builder<>(eventType, key, handler);
+   }
+
+   /**
+    * Get the amount of events received, including the ones that were collapsed or not sampled
+    *
+    * @return received events
+    */
+   public long getReceived() { return received.sum(); }
+
+   /**
+    * Get the amount of events handed to the handler
+    *
+    * @return delivered events
+    */
+   public long getDelivered() { return delivered.sum(); }
+
+   /**
+    * Hand the collected events to the handler now
+    */
+   public void flush() {
+      Map<K, E> batch;
+      synchronized (lock) {
+         if (pending.isEmpty()) return;
+         batch = pending;
+         pending = new LinkedHashMap<>(batch.size() * 4 / 3 + 1);
+      }
+      delivered.add(batch.size());
+      try {
+         handler.handle(Collections.unmodifiableMap(batch));
+      } catch (RuntimeException e) {
+         plugin.getLogger().log(Level.SEVERE, "Failed to handle a batch of " + eventType.getSimpleName() + "!", e);
+      }
+   }
+
+   /**
+    * Register the handler collecting the events and start delivering batches
+    *
+    * @param plugin plugin the listener is registered to
+    * @return registered handlers
+    */
+   synchronized Map<HandlerList, List<RegisteredListener>> start(Plugin plugin) {
+      if (task != null) throw new IllegalStateException("Coalescing listener for " + eventType.getSimpleName() + " is registered already");
+      this.plugin = plugin;
+      RegisteredListener registered = new RegisteredListener(this, (listener, event) -> collect(event), priority, plugin, ignoreCancelled);
+      HandlerList handlerList = ListenerRegistry.handlerListOf(eventType);
+      handlerList.register(registered);
+      task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::flush, intervalTicks, intervalTicks);
+      return Collections.singletonMap(handlerList, Collections.singletonList(registered));
+   }
+
+   /**
+    * Stop delivering batches, handing over what was collected so far
+    */
+   synchronized void stop() {
+      if (task == null) return;
+      task.cancel();
+      task = null;
+      flush();
+   }
+
+   private void collect(Event event) {
+      // Handler lists of parent events also call this for other events
+      if (!eventType.isInstance(event)) return;
+      received.increment();
+      if (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) return;
+      E typed = eventType.cast(event);
+      K eventKey = key.apply(typed);
+      synchronized (lock) {
+         pending.put(eventKey, typed);
+      }
+   }
+
+   /**
+    * Options of a {@link CoalescingListener}
+    *
+    * @param <K> key the events are collapsed by
+    * @param <E> type of event
+    */
+   public static final class Builder<K, E extends Event> {
+
+      private final Class<E> eventType;
+      private final Function<? super E, ? extends K> key;
+      private final BatchHandler<K, E> handler;
+      private EventPriority priority = EventPriority.NORMAL;
+      private boolean ignoreCancelled;
+      private long intervalTicks = 1;
+      private double sampleRate = 1;
+
+      private Builder(Class<E> eventType, Function<? super E, ? extends K> key, BatchHandler<K, E> handler) {
+         this.eventType = eventType;
+         this.key = key;
+         this.handler = handler;
+      }
+
+      /**
+       * Set the priority the events are collected at, NORMAL by default
+       *
+       * @param priority priority
+       * @return this builder
+       */
+      public Builder<K, E> priority(EventPriority priority) {
+         this.priority = priority;
+         return this;
+      }
+
+      /**
+       * Skip events that are cancelled when they are collected
+       *
+       * @param ignoreCancelled true to skip cancelled events
+       * @return this builder
+       */
+      public Builder<K, E> ignoreCancelled(boolean ignoreCancelled) {
+         this.ignoreCancelled = ignoreCancelled;
+         return this;
+      }
+
+      /**
+       * Set the ticks between batches, 1 by default
+       *
+       * @param intervalTicks ticks between batches
+       * @return this builder
+       */
+      public Builder<K, E> intervalTicks(long intervalTicks) {
+         this.intervalTicks = Math.max(1, intervalTicks);
+         return this;
+      }
+
+      /**
+       * Only consider a random share of the events, all of them by default
+       *
+       * @param sampleRate share of the events to consider, between 0 and 1
+       * @return this builder
+       */
+      public Builder<K, E> sampleRate(double sampleRate) {
+         this.sampleRate = Math.max(0, Math.min(1, sampleRate));
+         return this;
+      }
+
+      /**
+       * Create the listener
+       *
+       * @return coalescing listener, ready to be registered
+       */
+      public CoalescingListener<K, E> build() {
+         return new CoalescingListener<>(this);
+      }
+
+   }
+
+}
@@ -0,0 +1,204 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.bfu4.bonk.listener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * EventRing - Preallocated ring buffer handing snapshots from any number of publishers to one worker thread
+ * <p>
+ * Publishers claim a sequence with a single CAS, store the snapshot in its slot and mark the slot
+ * as published. The worker reads every published slot up to the batch size in one go and frees
+ * the slots before consuming them, so publishers never wait on the consumer's work.
+ */
+final class EventRing<S> implements Runnable {
+
+   private static final int SPIN_TRIES = 100;
+   private static final int YIELD_TRIES = 100;
+   private static final long SLEEP_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+   private static final long BLOCK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+   private final Object[] entries;
+   private final AtomicLongArray published;
+   private final int mask;
+   private final int batchSize;
+   private final AsyncEventPipeline.WaitStrategy waitStrategy;
+   private final AsyncEventPipeline.OverflowPolicy overflowPolicy;
+   private final SnapshotConsumer<S> consumer;
+   private final Consumer<RuntimeException> errorHandler;
+
+   /**
+    * Next sequence to claim.
+    */
+   private final AtomicLong cursor;
+
+   /**
+    * Sequences below this one were read by the worker, so their slots are free.
+    */
+   private final AtomicLong consumed;
+   private final LongAdder dropped;
+   private final Thread thread;
+   private volatile boolean waiting;
+   private volatile boolean running;
+
+   EventRing(int size, int batchSize, AsyncEventPipeline.WaitStrategy waitStrategy, AsyncEventPipeline.OverflowPolicy overflowPolicy,
+             SnapshotConsumer<S> consumer, Consumer<RuntimeException> errorHandler, String threadName) {
+      this.entries = new Object[size];
+      this.published = new AtomicLongArray(size);
+      for (int i = 0; i < size; i++) {
+         published.set(i, -1);
+      }
+      this.mask = size - 1;
+      this.batchSize = batchSize;
+      this.waitStrategy = waitStrategy;
+      this.overflowPolicy = overflowPolicy;
+      this.consumer = consumer;
+      this.errorHandler = errorHandler;
+      this.cursor = new AtomicLong();
+      this.consumed = new AtomicLong();
+      this.dropped = new LongAdder();
+      this.thread = new Thread(this, threadName);
+      this.thread.setDaemon(true);
+   }
+
+   void start() {
+      running = true;
+      thread.start();
+   }
+
+   /**
+    * Stop the worker once it consumed everything published so far
+    *
+    * @param timeoutMillis time to wait for the worker
+    */
+   void stop(long timeoutMillis) {
+      running = false;
+      LockSupport.unpark(thread);
+      try {
+         thread.join(timeoutMillis);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   /**
+    * Publish a snapshot
+    *
+    * @param snapshot snapshot to hand to the worker
+    * @return true if it was published, false if it was dropped
+    */
+   boolean publish(S snapshot) {
+      int tries = 0;
+      long sequence;
+      while (true) {
+         sequence = cursor.get();
+         if (sequence - entries.length >= consumed.get()) {
+            // Full
+            if (overflowPolicy == AsyncEventPipeline.OverflowPolicy.DROP || !running) {
+               dropped.increment();
+               return false;
+            }
+            backOff(tries++);
+         } else if (cursor.compareAndSet(sequence, sequence + 1)) {
+            break;
+         }
+      }
+      int slot = (int) sequence & mask;
+      entries[slot] = snapshot;
+      published.set(slot, sequence);
+      if (waiting) LockSupport.unpark(thread);
+      return true;
+   }
+
+   long getPublished() { return cursor.get(); }
+
+   long getBacklog() { return cursor.get() - consumed.get(); }
+
+   long getDropped() { return dropped.sum(); }
+
+   @Override
+   @SuppressWarnings("unchecked")
+   public void run() {
+      List<S> batch = new ArrayList<>(batchSize);
+      long next = 0;
+      int tries = 0;
+      while (true) {
+         long end = next;
+         while (end - next < batchSize && published.get((int) end & mask) == end) {
+            int slot = (int) end & mask;
+            batch.add((S) entries[slot]);
+            entries[slot] = null;
+            end++;
+         }
+         if (end == next) {
+            if (!running) return;
+            tries = await(tries, next);
+            continue;
+         }
+         tries = 0;
+         next = end;
+         consumed.lazySet(next);
+         try {
+            consumer.consume(batch);
+         } catch (RuntimeException e) {
+            errorHandler.accept(e);
+         }
+         batch.clear();
+      }
+   }
+
+   private int await(int tries, long next) {
+      switch (waitStrategy) {
+         case BUSY_SPIN:
+            return tries;
+         case BLOCKING:
+            waiting = true;
+            // Check again, a publisher may have missed the flag
+            if (running && published.get((int) next & mask) != next) LockSupport.parkNanos(this, BLOCK_NANOS);
+            waiting = false;
+            return tries;
+         default:
+            backOff(tries);
+            return tries + 1;
+      }
+   }
+
+   private void backOff(int tries) {
+      if (tries < SPIN_TRIES) return;
+      if (tries < SPIN_TRIES + YIELD_TRIES || waitStrategy == AsyncEventPipeline.WaitStrategy.YIELDING) {
+         Thread.yield();
+      } else {
+         LockSupport.parkNanos(SLEEP_NANOS);
+      }
+   }
+
+}
@@ -0,0 +1,132 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.bfu4.bonk.listener;
+
+import com.github.bfu4.bonk.utility.LatencyHistogram;
+import org.bukkit.event.Event;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HandlerMetrics - Call counts and latency of the handlers of one listener for one event type
+ */
+public class HandlerMetrics {
+
+   private final String listenerName;
+   private final Class<? extends Event> eventType;
+   private final LongAdder calls;
+   private final LongAdder overBudget;
+   private final LatencyHistogram latency;
+   private final AtomicBoolean reported;
+
+   /**
+    * Create new, empty metrics
+    *
+    * @param listenerName name the listener is registered under
+    * @param eventType event the handlers listen to
+    */
+   public HandlerMetrics(String listenerName, Class<? extends Event> eventType) {
+      this.listenerName = listenerName;
+      this.eventType = eventType;
+      this.calls = new LongAdder();
+      this.overBudget = new LongAdder();
+      this.latency = new LatencyHistogram();
+      this.reported = new AtomicBoolean();
+   }
+
+   /**
+    * Record a call of a handler
+    *
+    * @param nanos time spent in the handler
+    * @param budgetNanos time a handler may take
+    * @return true the first time a call exceeds the budget
+    */
+   boolean record(long nanos, long budgetNanos) {
+      calls.increment();
+      latency.record(nanos);
+      if (nanos <= budgetNanos) return false;
+      overBudget.increment();
+      return reported.compareAndSet(false, true);
+   }
+
+   /**
+    * Get the name the listener is registered under
+    *
+    * @return listener name
+    */
+   public String getListenerName() { return listenerName; }
+
+   /**
+    * Get the event the handlers listen to
+    *
+    * @return event type
+    */
+   public Class<? extends Event> getEventType() { return eventType; }
+
+   /**
+    * Get the amount of times the handlers were called
+    *
+    * @return calls
+    */
+   public long getCalls() { return calls.sum(); }
+
+   /**
+    * Get the amount of calls that took longer than the budget
+    *
+    * @return calls over budget
+    */
+   public long getOverBudget() { return overBudget.sum(); }
+
+   /**
+    * Check if any call took longer than the budget
+    *
+    * @return true if flagged
+    */
+   public boolean isOverBudget() { return getOverBudget() > 0; }
+
+   /**
+    * Get the time spent in the handlers
+    *
+    * @return latency histogram
+    */
+   public LatencyHistogram getLatency() { return latency; }
+
+   /**
+    * Forget everything recorded so far
+    */
+   public void reset() {
+      calls.reset();
+      overBudget.reset();
+      latency.reset();
+      reported.set(false);
+   }
+
+   @Override
+   public String toString() {
+      return listenerName + "/" + eventType.getSimpleName() + ": calls=" + getCalls() + " overBudget=" + getOverBudget() + " " + latency;
+   }
+
+}
@@ -0,0 +1,182 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.bfu4.bonk.listener;
+
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.RegisteredListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ListenerProfiler - Times the event handlers of the listeners in a {@link ListenerRegistry}
+ * <p>
+ * Every handler is wrapped in an executor recording its latency per listener and event type,
+ * which costs two clock reads and a few counter increments per call. Handlers taking longer
+ * than the budget are counted, and logged the first time they do.
+ */
+public class ListenerProfiler {
+
+   private final Plugin plugin;
+   private final ConcurrentHashMap<String, ConcurrentHashMap<Class<? extends Event>, HandlerMetrics>> metrics;
+   private volatile long budgetNanos;
+   private volatile boolean enabled;
+
+   /**
+    * Create new profiler
+    *
+    * @param plugin plugin the listeners belong to
+    * @param budget time a handler may take
+    * @param unit unit of the budget
+    */
+   public ListenerProfiler(Plugin plugin, long budget, TimeUnit unit) {
+      this.plugin = plugin;
+      this.metrics = new ConcurrentHashMap<>();
+      this.budgetNanos = unit.toNanos(budget);
+      this.enabled = true;
+   }
+
+   /**
+    * Set the time a handler may take
+    *
+    * @param budget budget
+    * @param unit unit of the budget
+    */
+   public void setBudget(long budget, TimeUnit unit) { this.budgetNanos = unit.toNanos(budget); }
+
+   /**
+    * Get the time a handler may take
+    *
+    * @return budget in nanoseconds
+    */
+   public long getBudgetNanos() { return budgetNanos; }
+
+   /**
+    * Pause or resume recording. Handlers stay wrapped while paused.
+    *
+    * @param enabled false to pause
+    */
+   public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+   /**
+    * Check if calls are recorded
+    *
+    * @return true if recording
+    */
+   public boolean isEnabled() { return enabled; }
+
+   /**
+    * Get the metrics of every listener and event type, the most time spent first
+    *
+    * @return metrics
+    */
+   public List<HandlerMetrics> getMetrics() {
+      List<HandlerMetrics> all = new ArrayList<>();
+      metrics.values().forEach(byEvent -> all.addAll(byEvent.values()));
+      all.sort(Comparator.comparingLong((HandlerMetrics handler) -> handler.getLatency().getTotal()).reversed());
+      return all;
+   }
+
+   /**
+    * Get the metrics of a listener, per event type
+    *
+    * @param listenerName name the listener is registered under
+    * @return metrics, empty if nothing was recorded
+    */
+   public List<HandlerMetrics> getMetrics(String listenerName) {
+      Map<Class<? extends Event>, HandlerMetrics> byEvent = metrics.get(listenerName);
+      return byEvent == null ? new ArrayList<>() : new ArrayList<>(byEvent.values());
+   }
+
+   /**
+    * Get the metrics of the handlers that took longer than the budget, the most time spent first
+    *
+    * @return flagged metrics
+    */
+   public List<HandlerMetrics> getOverBudget() {
+      List<HandlerMetrics> flagged = getMetrics();
+      flagged.removeIf(handler -> !handler.isOverBudget());
+      return flagged;
+   }
+
+   /**
+    * Forget everything recorded so far
+    */
+   public void reset() {
+      metrics.values().forEach(byEvent -> byEvent.values().forEach(HandlerMetrics::reset));
+   }
+
+   /**
+    * Wrap a handler in one recording its calls
+    *
+    * @param listenerName name the listener is registered under
+    * @param eventType event the handler listens to
+    * @param handler handler to wrap
+    * @return wrapped handler
+    */
+   RegisteredListener wrap(String listenerName, Class<? extends Event> eventType, RegisteredListener handler) {
+      HandlerMetrics handlerMetrics = metrics.computeIfAbsent(listenerName, name -> new ConcurrentHashMap<>())
+         .computeIfAbsent(eventType, type -> new HandlerMetrics(listenerName, type));
+      EventExecutor executor = (listener, event) -> call(handler, handlerMetrics, event);
+      // The wrapped handler still skips cancelled events itself
+      return new RegisteredListener(handler.getListener(), executor, handler.getPriority(), plugin, false);
+   }
+
+   /**
+    * Drop the metrics of an unregistered listener
+    *
+    * @param listenerName name the listener was registered under
+    */
+   void remove(String listenerName) {
+      metrics.remove(listenerName);
+   }
+
+   private void call(RegisteredListener handler, HandlerMetrics handlerMetrics, Event event) throws EventException {
+      if (!enabled || (handler.isIgnoringCancelled() && event instanceof Cancellable && ((Cancellable) event).isCancelled())) {
+         handler.callEvent(event);
+         return;
+      }
+      long start = System.nanoTime();
+      try {
+         handler.callEvent(event);
+      } finally {
+         long nanos = System.nanoTime() - start;
+         long budget = budgetNanos;
+         if (handlerMetrics.record(nanos, budget)) {
+            plugin.getLogger().warning(String.format("Listener %s took %.2fms handling %s, over its budget of %.2fms.",
+               handlerMetrics.getListenerName(), nanos / 1e6, event.getEventName(), budget / 1e6));
+         }
+      }
+   }
+
+}
@@ -0,0 +1,365 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.bfu4.bonk.listener;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.IllegalPluginAccessException;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.RegisteredListener;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ListenerRegistry - Listeners of a plugin, indexed by name, instance, class and group
+ * <p>
+ * The registry registers the handlers of a listener itself and remembers them, so a listener is
+ * unregistered by removing just its own handlers from the handler lists of its events, instead
+ * of scanning every handler of the plugin. Lookups don't lock, registering and unregistering
+ * are serialized.
+ */
+public class ListenerRegistry {
+
+   /**
+    * Handler lists by event class, shared by all registries. Kept on the classes themselves, so the
+    * event classes of a reloaded plugin and their class loader can still be collected.
+    */
+   private static final ClassValue<HandlerList> HANDLER_LISTS = new ClassValue<HandlerList>() {
+      @Override
+      protected HandlerList computeValue(Class<?> type) {
+         return findHandlerList(type);
+      }
+   };
+
+   private final Plugin plugin;
+   private final ConcurrentHashMap<String, Entry> byName;
+   private final ConcurrentHashMap<Listener, Entry> byInstance;
+   private final ConcurrentHashMap<Class<?>, Set<Entry>> byClass;
+   private final ConcurrentHashMap<String, Set<Entry>> byGroup;
+   private volatile ListenerProfiler profiler;
+
+   /**
+    * Create new, empty registry
+    *
+    * @param plugin plugin the listeners are registered to
+    */
+   public ListenerRegistry(Plugin plugin) {
+      this.plugin = plugin;
+      this.byName = new ConcurrentHashMap<>();
+      this.byInstance = new ConcurrentHashMap<>();
+      this.byClass = new ConcurrentHashMap<>();
+      this.byGroup = new ConcurrentHashMap<>();
+   }
+
+   /**
+    * Register a listener, replacing the listener registered under the same name.
+    * {@link CoalescingListener}s and {@link AsyncEventPipeline}s are registered with their own handler.
+    *
+    * @param name name of the listener
+    * @param listener listener to register
+    * @param groups groups the listener belongs to, e.g. the arena it handles
+    */
+   public synchronized void register(String name, Listener listener, String... groups) {
+      if (!plugin.isEnabled()) throw new IllegalPluginAccessException("Plugin attempted to register " + name + " while not enabled");
+      unregister(name);
+      unregister(listener);
+
+      Map<HandlerList, List<RegisteredListener>> handlers;
+      if (listener instanceof CoalescingListener) {
+         handlers = ((CoalescingListener<?, ?>) listener).start(plugin);
+      } else if (listener instanceof AsyncEventPipeline) {
+         handlers = ((AsyncEventPipeline<?, ?>) listener).start(plugin);
+      } else {
+         handlers = registerHandlers(name, listener);
+      }
+
+      Entry entry = new Entry(name, listener, new HashSet<>(Arrays.asList(groups)), handlers);
+      byName.put(name, entry);
+      byInstance.put(listener, entry);
+      byClass.computeIfAbsent(listener.getClass(), type -> ConcurrentHashMap.newKeySet()).add(entry);
+      for (String group : entry.groups) {
+         byGroup.computeIfAbsent(group, key -> ConcurrentHashMap.newKeySet()).add(entry);
+      }
+   }
+
+   private Map<HandlerList, List<RegisteredListener>> registerHandlers(String name, Listener listener) {
+      Map<HandlerList, List<RegisteredListener>> handlers = new LinkedHashMap<>();
+      for (Map.Entry<Class<? extends Event>, Set<RegisteredListener>> entry : plugin.getPluginLoader().createRegisteredListeners(listener, plugin).entrySet()) {
+         List<RegisteredListener> registered = new ArrayList<>(entry.getValue());
+         ListenerProfiler current = profiler;
+         if (current != null) registered.replaceAll(handler -> current.wrap(name, entry.getKey(), handler));
+         HandlerList handlerList = handlerListOf(entry.getKey());
+         handlerList.registerAll(registered);
+         handlers.computeIfAbsent(handlerList, list -> new ArrayList<>()).addAll(registered);
+      }
+      return handlers;
+   }
+
+   /**
+    * Time the handlers of the listeners registered from now on. Enable this before registering listeners.
+    *
+    * @param budget time a handler may take before it's flagged
+    * @param unit unit of the budget
+    * @return profiler holding the recorded metrics
+    */
+   public synchronized ListenerProfiler enableProfiling(long budget, TimeUnit unit) {
+      if (profiler == null) {
+         profiler = new ListenerProfiler(plugin, budget, unit);
+      } else {
+         profiler.setBudget(budget, unit);
+         profiler.setEnabled(true);
+      }
+      return profiler;
+   }
+
+   /**
+    * Get the profiler timing the handlers
+    *
+    * @return profiler, null if profiling was never enabled
+    */
+   public ListenerProfiler getProfiler() { return profiler; }
+
+   /**
+    * Get a listener by name
+    *
+    * @param name name of the listener
+    * @return listener, null if none is registered under the name
+    */
+   public Listener get(String name) {
+      Entry entry = byName.get(name);
+      return entry == null ? null : entry.listener;
+   }
+
+   /**
+    * Get the name a listener is registered under
+    *
+    * @param listener listener
+    * @return name, null if the listener isn't registered
+    */
+   public String getName(Listener listener) {
+      Entry entry = byInstance.get(listener);
+      return entry == null ? null : entry.name;
+   }
+
+   /**
+    * Check if a listener is registered
+    *
+    * @param listener listener
+    * @return true if registered
+    */
+   public boolean contains(Listener listener) { return byInstance.containsKey(listener); }
+
+   /**
+    * Get the listeners of a class, not including subclasses
+    *
+    * @param listenerClass class of the listeners
+    * @return listeners
+    */
+   public List<Listener> getByClass(Class<? extends Listener> listenerClass) { return listenersOf(byClass.get(listenerClass)); }
+
+   /**
+    * Get the listeners in a group
+    *
+    * @param group group
+    * @return listeners
+    */
+   public List<Listener> getGroup(String group) { return listenersOf(byGroup.get(group)); }
+
+   /**
+    * Get the handlers registered for a listener, one per event handler method
+    *
+    * @param listener listener
+    * @return handlers, empty if the listener isn't registered
+    */
+   public List<RegisteredListener> getRegisteredListeners(Listener listener) {
+      Entry entry = byInstance.get(listener);
+      if (entry == null) return Collections.emptyList();
+      List<RegisteredListener> registered = new ArrayList<>();
+      entry.handlers.values().forEach(registered::addAll);
+      return registered;
+   }
+
+   /**
+    * Get all listeners by name
+    *
+    * @return unmodifiable copy of the listeners
+    */
+   public Map<String, Listener> getListeners() {
+      Map<String, Listener> listeners = new LinkedHashMap<>();
+      byName.forEach((name, entry) -> listeners.put(name, entry.listener));
+      return Collections.unmodifiableMap(listeners);
+   }
+
+   /**
+    * Get the amount of registered listeners
+    *
+    * @return listeners
+    */
+   public int size() { return byName.size(); }
+
+   /**
+    * Unregister the listener registered under a name
+    *
+    * @param name name of the listener
+    * @return true if a listener was unregistered
+    */
+   public synchronized boolean unregister(String name) {
+      Entry entry = byName.get(name);
+      if (entry == null) return false;
+      remove(entry);
+      return true;
+   }
+
+   /**
+    * Unregister a listener
+    *
+    * @param listener listener
+    * @return true if the listener was registered
+    */
+   public synchronized boolean unregister(Listener listener) {
+      Entry entry = byInstance.get(listener);
+      if (entry == null) return false;
+      remove(entry);
+      return true;
+   }
+
+   /**
+    * Unregister the listeners of a class, not including subclasses
+    *
+    * @param listenerClass class of the listeners
+    * @return amount of listeners unregistered
+    */
+   public synchronized int unregisterClass(Class<? extends Listener> listenerClass) { return removeAll(byClass.get(listenerClass)); }
+
+   /**
+    * Unregister the listeners in a group
+    *
+    * @param group group
+    * @return amount of listeners unregistered
+    */
+   public synchronized int unregisterGroup(String group) { return removeAll(byGroup.get(group)); }
+
+   /**
+    * Unregister every listener
+    */
+   public synchronized void unregisterAll() {
+      removeAll(new ArrayList<>(byName.values()));
+   }
+
+   private int removeAll(Iterable<Entry> entries) {
+      if (entries == null) return 0;
+      List<Entry> removed = new ArrayList<>();
+      entries.forEach(removed::add);
+      removed.forEach(this::remove);
+      return removed.size();
+   }
+
+   private void remove(Entry entry) {
+      entry.handlers.forEach((handlerList, registered) -> registered.forEach(handlerList::unregister));
+      if (entry.listener instanceof CoalescingListener) ((CoalescingListener<?, ?>) entry.listener).stop();
+      if (entry.listener instanceof AsyncEventPipeline) ((AsyncEventPipeline<?, ?>) entry.listener).stop();
+      if (byName.remove(entry.name, entry) && profiler != null) profiler.remove(entry.name);
+      byInstance.remove(entry.listener, entry);
+      removeFromIndex(byClass, entry.listener.getClass(), entry);
+      for (String group : entry.groups) {
+         removeFromIndex(byGroup, group, entry);
+      }
+   }
+
+   private static <K> void removeFromIndex(ConcurrentHashMap<K, Set<Entry>> index, K key, Entry entry) {
+      index.computeIfPresent(key, (k, entries) -> {
+         entries.remove(entry);
+         return entries.isEmpty() ? null : entries;
+      });
+   }
+
+   private static List<Listener> listenersOf(Set<Entry> entries) {
+      if (entries == null) return Collections.emptyList();
+      List<Listener> listeners = new ArrayList<>(entries.size());
+      for (Entry entry : entries) {
+         listeners.add(entry.listener);
+      }
+      return listeners;
+   }
+
+   /**
+    * Get the handler list of an event, the way Bukkit finds it: through the static getHandlerList()
+    * of the event class or the closest superclass declaring it.
+    *
+    * @param eventClass event class
+    * @return handler list
+    */
+   static HandlerList handlerListOf(Class<? extends Event> eventClass) {
+      return HANDLER_LISTS.get(eventClass);
+   }
+
+   private static HandlerList findHandlerList(Class<?> eventClass) {
+      Class<?> current = eventClass;
+      while (current != null && Event.class.isAssignableFrom(current) && current != Event.class) {
+         try {
+            Method method = current.getDeclaredMethod("getHandlerList");
+            method.setAccessible(true);
+            return (HandlerList) method.invoke(null);
+         } catch (NoSuchMethodException e) {
+            current = current.getSuperclass();
+         } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalPluginAccessException("Unable to get the handler list of " + eventClass.getName() + ": " + e.getMessage());
+         }
+      }
+      throw new IllegalPluginAccessException("Unable to find handler list for event " + eventClass.getName() + ". Static getHandlerList method required!");
+   }
+
+   /**
+    * Registered listener with its indexes and handlers.
+    */
+   private static final class Entry {
+
+      private final String name;
+      private final Listener listener;
+      private final Set<String> groups;
+      private final Map<HandlerList, List<RegisteredListener>> handlers;
+
+      private Entry(String name, Listener listener, Set<String> groups, Map<HandlerList, List<RegisteredListener>> handlers) {
+         this.name = name;
+         this.listener = listener;
+         this.groups = groups;
+         this.handlers = handlers;
+      }
+
+   }
+
+}
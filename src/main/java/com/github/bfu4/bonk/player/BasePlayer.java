@@ -42,9 +42,13 @@ import java.util.UUID;
 public class BasePlayer implements ServerOperator {
 
    private final CommandSender sender;
+   private final Player player;
+   private final UUID uuid;
 
    public BasePlayer(CommandSender sender) {
       this.sender = sender;
+      this.player = sender instanceof Player ? (Player) sender : null;
+      this.uuid = player != null ? player.getUniqueId() : null;
    }
 
    public void sendMessage(String message) {
@@ -55,6 +59,14 @@ public class BasePlayer implements ServerOperator {
       sendMessage(PluginBase.COLORED_PREFIX + " " + message);
    }
 
+   public void sendMessage(MessageTemplate message, Object... values) {
+      sendRawMessage(message.render(values));
+   }
+
+   public void sendRawMessage(String message) {
+      sender.sendMessage(message);
+   }
+
    public boolean isOperator() {
       return sender.isOp();
    }
@@ -68,11 +80,16 @@ public class BasePlayer implements ServerOperator {
    }
 
    public UUID getUUID() {
+      if (uuid != null) return uuid;
       Player player = Bukkit.getPlayer(sender.getName());
       return player != null ? player.getUniqueId() : null;
    }
 
-   public Location getLocation() { return sender instanceof Player ? ((Player) sender).getLocation() : null; }
+   public Player getPlayer() { return player; }
+
+   public CommandSender getSender() { return sender; }
+
+   public Location getLocation() { return player != null ? player.getLocation() : null; }
 
    private String translateMessage(String message) {
       return ChatColor.translateAlternateColorCodes('&', message);
@@ -0,0 +1,83 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.bfu4.bonk.player;
+
+import com.github.bfu4.bonk.PluginBase;
+import org.bukkit.ChatColor;
+
+import java.util.Collection;
+
+/**
+ * Broadcast - Send one message to many users, translated once instead of once per user
+ * <p>
+ * Use {@link PlayerRegistry#getOnline()} to reach every online player.
+ */
+public final class Broadcast {
+
+   private Broadcast() { }
+
+   /**
+    * Send a message
+    *
+    * @param recipients users to send the message to
+    * @param message message using {@literal &} colour codes
+    */
+   public static void send(Collection<? extends BasePlayer> recipients, String message) {
+      sendRaw(recipients, ChatColor.translateAlternateColorCodes('&', message));
+   }
+
+   /**
+    * Send a message starting with {@link PluginBase#COLORED_PREFIX}
+    *
+    * @param recipients users to send the message to
+    * @param message message using {@literal &} colour codes
+    */
+   public static void sendFormatted(Collection<? extends BasePlayer> recipients, String message) {
+      send(recipients, PluginBase.COLORED_PREFIX + " " + message);
+   }
+
+   /**
+    * Send a template
+    *
+    * @param recipients users to send the message to
+    * @param message template to send
+    * @param values values of the placeholders, in the order of {@link MessageTemplate#getPlaceholders()}
+    */
+   public static void send(Collection<? extends BasePlayer> recipients, MessageTemplate message, Object... values) {
+      sendRaw(recipients, message.render(values));
+   }
+
+   /**
+    * Send an already translated message
+    *
+    * @param recipients users to send the message to
+    * @param message translated message
+    */
+   public static void sendRaw(Collection<? extends BasePlayer> recipients, String message) {
+      for (BasePlayer recipient : recipients) {
+         recipient.sendRawMessage(message);
+      }
+   }
+
+}
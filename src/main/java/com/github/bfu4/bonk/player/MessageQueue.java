@@ -0,0 +1,191 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.bfu4.bonk.player;
+
+import com.github.bfu4.bonk.PluginBase;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * MessageQueue - Outbound messages spread over ticks instead of sent all at once
+ * <p>
+ * At most a set amount of messages is sent per tick, the rest waits for the next ticks. A message
+ * that is already waiting for a user isn't queued for that user again, so a burst of identical
+ * messages reaches every user once. Messages can be queued from any thread, they are sent on
+ * the main thread.
+ */
+public class MessageQueue {
+
+   private final PluginBase plugin;
+   private final int messagesPerTick;
+   private final int capacity;
+   private final ConcurrentLinkedQueue<Pending> queue;
+
+   /**
+    * Messages waiting in the queue, to drop duplicates.
+    */
+   private final Set<Pending> pending;
+   private final AtomicInteger size;
+   private BukkitTask task;
+
+   /**
+    * Create new queue
+    *
+    * @param plugin plugin sending the messages
+    * @param messagesPerTick max amount of messages sent per tick
+    * @param capacity max amount of messages waiting, further messages are dropped
+    */
+   public MessageQueue(PluginBase plugin, int messagesPerTick, int capacity) {
+      this.plugin = plugin;
+      this.messagesPerTick = messagesPerTick;
+      this.capacity = capacity;
+      this.queue = new ConcurrentLinkedQueue<>();
+      this.pending = ConcurrentHashMap.newKeySet();
+      this.size = new AtomicInteger();
+   }
+
+   /**
+    * Start sending messages every tick
+    */
+   public void start() {
+      if (task == null) task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::drain, 1, 1);
+   }
+
+   /**
+    * Stop sending messages every tick and send everything that is waiting. Call this from the main thread.
+    */
+   public void stop() {
+      if (task != null) {
+         task.cancel();
+         task = null;
+      }
+      drain(Integer.MAX_VALUE);
+   }
+
+   /**
+    * Queue an already translated message
+    *
+    * @param user user to send the message to
+    * @param message translated message
+    * @return false if the message was dropped because it's already waiting for the user or the queue is full
+    */
+   public boolean send(BasePlayer user, String message) {
+      Pending queued = new Pending(user, message);
+      if (size.incrementAndGet() > capacity) {
+         size.decrementAndGet();
+         return false;
+      }
+      if (!pending.add(queued)) {
+         size.decrementAndGet();
+         return false;
+      }
+      queue.add(queued);
+      return true;
+   }
+
+   /**
+    * Queue a template
+    *
+    * @param user user to send the message to
+    * @param message template to send
+    * @param values values of the placeholders, in the order of {@link MessageTemplate#getPlaceholders()}
+    * @return false if the message was dropped because it's already waiting for the user or the queue is full
+    */
+   public boolean send(BasePlayer user, MessageTemplate message, Object... values) {
+      return send(user, message.render(values));
+   }
+
+   /**
+    * Queue a template for many users, rendered once
+    *
+    * @param recipients users to send the message to
+    * @param message template to send
+    * @param values values of the placeholders, in the order of {@link MessageTemplate#getPlaceholders()}
+    * @return amount of users the message was queued for
+    */
+   public int broadcast(Collection<? extends BasePlayer> recipients, MessageTemplate message, Object... values) {
+      String rendered = message.render(values);
+      int queued = 0;
+      for (BasePlayer recipient : recipients) {
+         if (send(recipient, rendered)) queued++;
+      }
+      return queued;
+   }
+
+   /**
+    * Get the amount of messages waiting
+    *
+    * @return waiting messages
+    */
+   public int size() { return size.get(); }
+
+   private void drain() {
+      drain(messagesPerTick);
+   }
+
+   private void drain(int limit) {
+      for (int i = 0; i < limit; i++) {
+         Pending message = queue.poll();
+         if (message == null) return;
+         // Allow the same message to be queued again once it's sent
+         pending.remove(message);
+         size.decrementAndGet();
+         message.user.sendRawMessage(message.message);
+      }
+   }
+
+   /**
+    * Message waiting for a user. Equal to another message for the same sender with the same text.
+    */
+   private static final class Pending {
+
+      private final BasePlayer user;
+      private final String message;
+
+      private Pending(BasePlayer user, String message) {
+         this.user = user;
+         this.message = message;
+      }
+
+      @Override
+      public boolean equals(Object o) {
+         if (this == o) return true;
+         if (!(o instanceof Pending)) return false;
+         Pending other = (Pending) o;
+         return user.getSender() == other.user.getSender() && message.equals(other.message);
+      }
+
+      @Override
+      public int hashCode() {
+         return 31 * System.identityHashCode(user.getSender()) + message.hashCode();
+      }
+
+   }
+
+}
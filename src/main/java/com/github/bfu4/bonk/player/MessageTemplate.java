@@ -0,0 +1,266 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.bfu4.bonk.player;
+
+import com.github.bfu4.bonk.PluginBase;
+import org.bukkit.ChatColor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MessageTemplate - Message whose colour codes are translated once, when it's defined
+ * <p>
+ * Placeholders are written as {name} and filled in when the message is rendered. Values are
+ * inserted as they are, colour codes in them aren't translated. Messages without placeholders
+ * are sent without any work at all, so constant messages are best kept in a static field.
+ */
+public final class MessageTemplate {
+
+   private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+   /**
+    * Text between the placeholders, one more than there are placeholders.
+    */
+   private final String[] literals;
+
+   /**
+    * Index into {@link MessageTemplate#names} of every placeholder occurrence.
+    */
+   private final int[] slots;
+   private final String[] names;
+   private final String text;
+
+   private MessageTemplate(String translated) {
+      List<String> literals = new ArrayList<>();
+      List<Integer> slots = new ArrayList<>();
+      List<String> names = new ArrayList<>();
+
+      int start = 0;
+      int search = 0;
+      int open;
+      while ((open = translated.indexOf('{', search)) >= 0) {
+         int close = translated.indexOf('}', open + 1);
+         if (close < 0) break;
+         String name = translated.substring(open + 1, close);
+         search = open + 1;
+         if (!isName(name)) continue;
+         literals.add(translated.substring(start, open));
+         int slot = names.indexOf(name);
+         if (slot < 0) {
+            slot = names.size();
+            names.add(name);
+         }
+         slots.add(slot);
+         start = close + 1;
+         search = start;
+      }
+      // Unfinished placeholders and braces that aren't placeholders stay part of the text
+      literals.add(translated.substring(start));
+
+      this.literals = literals.toArray(new String[0]);
+      this.slots = slots.stream().mapToInt(Integer::intValue).toArray();
+      this.names = names.toArray(new String[0]);
+      this.text = translated;
+   }
+
+   /**
+    * Define a message
+    *
+    * @param message message using {@literal &} colour codes and {name} placeholders
+    * @return template
+    */
+   public static MessageTemplate of(String message) {
+      return new MessageTemplate(ChatColor.translateAlternateColorCodes('&', message));
+   }
+
+   /**
+    * Define a message starting with {@link PluginBase#COLORED_PREFIX}, like {@link BasePlayer#sendFormattedMessage(String)}.
+    * The prefix is read now, so define these after setting it.
+    *
+    * @param message message using {@literal &} colour codes and {name} placeholders
+    * @return template
+    */
+   public static MessageTemplate prefixed(String message) {
+      return of(PluginBase.COLORED_PREFIX + " " + message);
+   }
+
+   /**
+    * Get the names of the placeholders, in the order they first appear
+    *
+    * @return placeholder names
+    */
+   public List<String> getPlaceholders() { return Collections.unmodifiableList(Arrays.asList(names)); }
+
+   /**
+    * Check if the message has placeholders
+    *
+    * @return true if it has placeholders
+    */
+   public boolean hasPlaceholders() { return names.length > 0; }
+
+   /**
+    * Render the message with every placeholder left as written
+    *
+    * @return translated message
+    */
+   public String render() { return text; }
+
+   /**
+    * Render the message
+    *
+    * @param values values of the placeholders, in the order of {@link MessageTemplate#getPlaceholders()}
+    * @return translated message
+    */
+   public String render(Object... values) {
+      if (names.length == 0) return text;
+      StringBuilder builder = BUFFER.get();
+      builder.setLength(0);
+      builder.append(literals[0]);
+      for (int i = 0; i < slots.length; i++) {
+         int slot = slots[i];
+         if (slot < values.length && values[slot] != null) {
+            builder.append(values[slot]);
+         } else {
+            builder.append('{').append(names[slot]).append('}');
+         }
+         builder.append(literals[i + 1]);
+      }
+      return builder.toString();
+   }
+
+   /**
+    * Render the message
+    *
+    * @param values values of the placeholders by name
+    * @return translated message
+    */
+   public String render(Map<String, ?> values) {
+      if (names.length == 0) return text;
+      Object[] ordered = new Object[names.length];
+      for (int i = 0; i < names.length; i++) {
+         ordered[i] = values.get(names[i]);
+      }
+      return render(ordered);
+   }
+
+   /**
+    * Start filling in the placeholders by name
+    *
+    * @return new builder, which can be reused for the next message
+    */
+   public Builder builder() { return new Builder(); }
+
+   /**
+    * Send the message with every placeholder left as written
+    *
+    * @param user user to send the message to
+    */
+   public void send(BasePlayer user) {
+      user.sendRawMessage(text);
+   }
+
+   /**
+    * Send the message
+    *
+    * @param user user to send the message to
+    * @param values values of the placeholders, in the order of {@link MessageTemplate#getPlaceholders()}
+    */
+   public void send(BasePlayer user, Object... values) {
+      user.sendRawMessage(render(values));
+   }
+
+   @Override
+   public String toString() { return text; }
+
+   private int slotOf(String name) {
+      for (int i = 0; i < names.length; i++) {
+         if (names[i].equals(name)) return i;
+      }
+      throw new IllegalArgumentException("Unknown placeholder " + name + " in \"" + text + "\"");
+   }
+
+   private static boolean isName(String name) {
+      if (name.isEmpty()) return false;
+      for (int i = 0; i < name.length(); i++) {
+         char c = name.charAt(i);
+         if (!Character.isLetterOrDigit(c) && c != '_' && c != '-' && c != '.') return false;
+      }
+      return true;
+   }
+
+   /**
+    * Values of the placeholders of a template, set by name
+    */
+   public final class Builder {
+
+      private final Object[] values;
+
+      private Builder() {
+         this.values = new Object[names.length];
+      }
+
+      /**
+       * Set the value of a placeholder
+       *
+       * @param name name of the placeholder
+       * @param value value, null to leave the placeholder as written
+       * @return this builder
+       * @throws IllegalArgumentException if the template has no placeholder with the name
+       */
+      public Builder set(String name, Object value) {
+         values[slotOf(name)] = value;
+         return this;
+      }
+
+      /**
+       * Forget the values set so far
+       *
+       * @return this builder
+       */
+      public Builder clear() {
+         Arrays.fill(values, null);
+         return this;
+      }
+
+      /**
+       * Render the message
+       *
+       * @return translated message
+       */
+      public String render() { return MessageTemplate.this.render(values); }
+
+      /**
+       * Send the message
+       *
+       * @param user user to send the message to
+       */
+      public void send(BasePlayer user) { user.sendRawMessage(render()); }
+
+   }
+
+}
@@ -0,0 +1,87 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.bfu4.bonk.player;
+
+import com.github.bfu4.bonk.PluginBase;
+import com.github.bfu4.bonk.file.YamlFile;
+
+import java.io.File;
+import java.util.UUID;
+
+/**
+ * PlayerData - Data of a single player, loaded and written by a {@link PlayerDataStore}
+ */
+public class PlayerData extends YamlFile {
+
+   private final UUID uuid;
+   private final PlayerDataStore store;
+
+   /**
+    * Create new player data
+    *
+    * @param plugin plugin that the data belongs to
+    * @param store store the data is cached in
+    * @param shard folder holding the file
+    * @param uuid uuid of the player
+    */
+   PlayerData(PluginBase plugin, PlayerDataStore store, File shard, UUID uuid) {
+      super(plugin, shard, uuid.toString());
+      this.uuid = uuid;
+      this.store = store;
+   }
+
+   /**
+    * Get the uuid of the player the data belongs to
+    *
+    * @return uuid
+    */
+   public UUID getUUID() { return uuid; }
+
+   /**
+    * Player data has no default file, it starts out empty
+    */
+   @Override
+   public void createFile() {
+      reload();
+   }
+
+   /**
+    * Mark the data as changed. It is written by the store with the next batch, when the player
+    * quits or when it's evicted, instead of right away.
+    */
+   @Override
+   public void save() {
+      markDirty();
+   }
+
+   /**
+    * Mark the data as changed, putting it back into the store's cache if it was evicted meanwhile
+    */
+   @Override
+   public void markDirty() {
+      super.markDirty();
+      store.readmit(this);
+   }
+
+}
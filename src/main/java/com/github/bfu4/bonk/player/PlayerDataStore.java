@@ -0,0 +1,302 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.bfu4.bonk.player;
+
+import com.github.bfu4.bonk.PluginBase;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+/**
+ * PlayerDataStore - Per-player data files with a bounded cache
+ * <p>
+ * Files are spread over 256 folders by the first two characters of the uuid, so no folder grows
+ * too large. Data is loaded on the async pre-login thread, so it's ready once the player joins,
+ * and kept in a least recently used cache. Online players are never evicted, so the cache holds
+ * at most the capacity or the amount of online players, whichever is larger. Changed data is
+ * written in batches on a timer and when the player quits, always serialized on the main thread.
+ * <p>
+ * Only unchanged data is evicted, so changed data stays cached past the capacity until it's written.
+ * Evicted data that is still referenced somewhere is reused when the player is loaded again, and
+ * marking it changed puts it back into the cache, so there is never more than one instance per player.
+ */
+public class PlayerDataStore implements Listener {
+
+   private final PluginBase plugin;
+   private final String name;
+   private final File folder;
+   private final int capacity;
+   private final long flushIntervalTicks;
+
+   /**
+    * Loaded data, least recently used first. Guarded by itself.
+    */
+   private final LinkedHashMap<UUID, PlayerData> cache;
+   private final Set<UUID> online;
+   private final ConcurrentHashMap<UUID, CompletableFuture<PlayerData>> loading;
+
+   /**
+    * Evicted data, reused if it is still referenced when the player is loaded again.
+    * A pending write references its data, so data is never read from disk before its last write landed.
+    */
+   private final ConcurrentHashMap<UUID, EvictedData> evicted;
+   private final ReferenceQueue<PlayerData> collected;
+   private BukkitTask flushTask;
+
+   /**
+    * Create new store
+    *
+    * @param plugin plugin that the data belongs to
+    * @param name name of the folder in the plugin's data folder holding the files
+    * @param capacity amount of offline players to keep cached
+    * @param flushIntervalTicks ticks between writing changed data
+    */
+   public PlayerDataStore(PluginBase plugin, String name, int capacity, long flushIntervalTicks) {
+      this.plugin = plugin;
+      this.name = name;
+      this.folder = new File(plugin.getDataFolder(), name);
+      this.capacity = capacity;
+      this.flushIntervalTicks = flushIntervalTicks;
+      this.cache = new LinkedHashMap<>(16, 0.75f, true);
+      this.online = ConcurrentHashMap.newKeySet();
+      this.loading = new ConcurrentHashMap<>();
+      this.evicted = new ConcurrentHashMap<>();
+      this.collected = new ReferenceQueue<>();
+   }
+
+   /**
+    * Start loading data on login and writing it on a timer. Call this from {@link PluginBase#onEnable()}.
+    */
+   public void start() {
+      // Internal, kept out of the plugin's named listeners
+      plugin.getServer().getPluginManager().registerEvents(this, plugin);
+      flushTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::flush, flushIntervalTicks, flushIntervalTicks);
+   }
+
+   /**
+    * Write all changed data, wait for it and stop. Call this from {@link PluginBase#onDisable()}.
+    */
+   public void close() {
+      if (flushTask != null) flushTask.cancel();
+      HandlerList.unregisterAll(this);
+      List<CompletableFuture<Void>> writes = new ArrayList<>();
+      for (PlayerData data : getLoaded()) {
+         writes.add(data.flushAsync());
+      }
+      for (CompletableFuture<Void> write : writes) {
+         write.join();
+      }
+   }
+
+   /**
+    * Get the data of a player, loading it if it isn't cached
+    *
+    * @param uuid uuid of the player
+    * @return data
+    */
+   public PlayerData get(UUID uuid) {
+      PlayerData data = getIfLoaded(uuid);
+      if (data != null) return data;
+
+      CompletableFuture<PlayerData> load = new CompletableFuture<>();
+      CompletableFuture<PlayerData> running = loading.putIfAbsent(uuid, load);
+      if (running != null) return running.join();
+      try {
+         // Another load may have finished between the cache miss and claiming the load
+         data = getIfLoaded(uuid);
+         if (data == null) data = load(uuid);
+         load.complete(data);
+         return data;
+      } catch (RuntimeException e) {
+         load.completeExceptionally(e);
+         throw e;
+      } finally {
+         loading.remove(uuid, load);
+      }
+   }
+
+   /**
+    * Get the data of an online player, loading it if it isn't cached
+    *
+    * @param player player
+    * @return data
+    */
+   public PlayerData get(BasePlayer player) {
+      UUID uuid = player.getUUID();
+      if (uuid == null) throw new IllegalArgumentException(player.getName() + " is not online");
+      return get(uuid);
+   }
+
+   /**
+    * Get the data of a player only if it's cached
+    *
+    * @param uuid uuid of the player
+    * @return data, null if it isn't loaded
+    */
+   public PlayerData getIfLoaded(UUID uuid) {
+      synchronized (cache) {
+         return cache.get(uuid);
+      }
+   }
+
+   /**
+    * Get the cached data
+    *
+    * @return copy of the cached data, least recently used first
+    */
+   public List<PlayerData> getLoaded() {
+      synchronized (cache) {
+         return new ArrayList<>(cache.values());
+      }
+   }
+
+   /**
+    * Hand all changed data to the file IO thread and evict what no longer fits the cache.
+    * The data is serialized on the calling thread, so call this from the main thread.
+    */
+   public void flush() {
+      for (PlayerData data : getLoaded()) {
+         if (data.isDirty()) data.flushAsync();
+      }
+      synchronized (cache) {
+         evict();
+      }
+   }
+
+   @EventHandler(priority = EventPriority.MONITOR)
+   public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+      if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+      try {
+         get(event.getUniqueId());
+      } catch (RuntimeException e) {
+         plugin.getLogger().log(Level.WARNING, "Failed to load data of " + event.getName() + "!", e);
+      }
+   }
+
+   @EventHandler(priority = EventPriority.LOWEST)
+   public void onJoin(PlayerJoinEvent event) {
+      UUID uuid = event.getPlayer().getUniqueId();
+      online.add(uuid);
+      // Normally loaded at pre-login already
+      get(uuid);
+   }
+
+   @EventHandler(priority = EventPriority.MONITOR)
+   public void onQuit(PlayerQuitEvent event) {
+      UUID uuid = event.getPlayer().getUniqueId();
+      online.remove(uuid);
+      PlayerData data = getIfLoaded(uuid);
+      if (data != null && data.isDirty()) data.flushAsync();
+   }
+
+   /**
+    * Put evicted data back into the cache when it's changed
+    *
+    * @param data changed data
+    */
+   void readmit(PlayerData data) {
+      UUID uuid = data.getUUID();
+      synchronized (cache) {
+         if (cache.get(uuid) == data) return;
+         if (cache.putIfAbsent(uuid, data) == null) evicted.remove(uuid);
+      }
+   }
+
+   private PlayerData load(UUID uuid) {
+      EvictedData reference = evicted.remove(uuid);
+      PlayerData data = reference != null ? reference.get() : null;
+      if (data != null) {
+         synchronized (cache) {
+            cache.put(uuid, data);
+            evict();
+         }
+         return data;
+      }
+
+      File shard = new File(folder, uuid.toString().substring(0, 2));
+      if (!shard.isDirectory() && !shard.mkdirs() && !shard.isDirectory()) {
+         plugin.getLogger().warning("Could not create " + shard + "!");
+      }
+      data = new PlayerData(plugin, this, shard, uuid);
+      data.reload();
+
+      synchronized (cache) {
+         cache.put(uuid, data);
+         evict();
+      }
+      return data;
+   }
+
+   /**
+    * Drop the least recently used offline players until the cache fits its capacity.
+    * Changed data is skipped, it's evicted once {@link PlayerDataStore#flush()} wrote it.
+    */
+   private void evict() {
+      Reference<? extends PlayerData> cleared;
+      while ((cleared = collected.poll()) != null) {
+         EvictedData reference = (EvictedData) cleared;
+         evicted.remove(reference.uuid, reference);
+      }
+
+      Iterator<PlayerData> iterator = cache.values().iterator();
+      while (cache.size() > capacity && iterator.hasNext()) {
+         PlayerData data = iterator.next();
+         UUID uuid = data.getUUID();
+         if (online.contains(uuid) || data.isDirty()) continue;
+         iterator.remove();
+         evicted.put(uuid, new EvictedData(data, collected));
+      }
+   }
+
+   private static final class EvictedData extends WeakReference<PlayerData> {
+
+      private final UUID uuid;
+
+      private EvictedData(PlayerData data, ReferenceQueue<PlayerData> queue) {
+         super(data, queue);
+         this.uuid = data.getUUID();
+      }
+
+   }
+
+}
@@ -0,0 +1,162 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.bfu4.bonk.player;
+
+import com.github.bfu4.bonk.PluginBase;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.ConsoleCommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.server.PluginDisableEvent;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * PlayerRegistry - One {@link BasePlayer} per online player, created on join and dropped on quit
+ * <p>
+ * Commands and listeners get the same wrapper every time instead of creating one per call, and
+ * the wrapper keeps the player's uuid instead of looking the player up by name.
+ * Get the registry of a plugin through {@link PluginBase#getPlayerRegistry()}. The registry stops
+ * when its plugin is disabled, dropping the wrappers so none outlives a reload.
+ */
+public class PlayerRegistry implements Listener {
+
+   private final PluginBase plugin;
+   private final ConcurrentHashMap<UUID, BasePlayer> players;
+   private volatile BasePlayer console;
+   private volatile boolean running;
+
+   /**
+    * Create new, empty registry
+    *
+    * @param plugin plugin the registry belongs to
+    */
+   public PlayerRegistry(PluginBase plugin) {
+      this.plugin = plugin;
+      this.players = new ConcurrentHashMap<>();
+   }
+
+   /**
+    * Register the players that are online already and start tracking joins and quits
+    */
+   public synchronized void start() {
+      if (running) return;
+      running = true;
+      for (Player player : plugin.getServer().getOnlinePlayers()) {
+         players.put(player.getUniqueId(), new BasePlayer(player));
+      }
+      // Internal, kept out of the plugin's named listeners
+      plugin.getServer().getPluginManager().registerEvents(this, plugin);
+   }
+
+   /**
+    * Stop tracking joins and quits and drop the registered wrappers
+    */
+   public synchronized void stop() {
+      if (!running) return;
+      running = false;
+      HandlerList.unregisterAll(this);
+      players.clear();
+      console = null;
+   }
+
+   /**
+    * Check whether the registry tracks the online players
+    *
+    * @return true between {@link PlayerRegistry#start()} and {@link PlayerRegistry#stop()}
+    */
+   public boolean isRunning() { return running; }
+
+   /**
+    * Get the wrapper of a command sender
+    *
+    * @param sender sender
+    * @return registered wrapper for players and the console, a new wrapper for other senders
+    */
+   public BasePlayer get(CommandSender sender) {
+      if (sender instanceof Player) return get((Player) sender);
+      BasePlayer current = console;
+      if (current != null && current.getSender() == sender) return current;
+      BasePlayer user = new BasePlayer(sender);
+      if (sender instanceof ConsoleCommandSender) console = user;
+      return user;
+   }
+
+   /**
+    * Get the wrapper of a player
+    *
+    * @param player player
+    * @return registered wrapper, a new one if the player isn't registered
+    */
+   public BasePlayer get(Player player) {
+      BasePlayer user = players.get(player.getUniqueId());
+      return user != null && user.getPlayer() == player ? user : new BasePlayer(player);
+   }
+
+   /**
+    * Get the wrapper of an online player
+    *
+    * @param uuid uuid of the player
+    * @return registered wrapper, null if the player isn't online
+    */
+   public BasePlayer get(UUID uuid) { return players.get(uuid); }
+
+   /**
+    * Get the wrappers of all online players
+    *
+    * @return unmodifiable view of the online players
+    */
+   public Collection<BasePlayer> getOnline() { return Collections.unmodifiableCollection(players.values()); }
+
+   @EventHandler(priority = EventPriority.LOWEST)
+   public void onJoin(PlayerJoinEvent event) {
+      Player player = event.getPlayer();
+      players.put(player.getUniqueId(), new BasePlayer(player));
+   }
+
+   @EventHandler(priority = EventPriority.MONITOR)
+   public void onQuit(PlayerQuitEvent event) {
+      Player player = event.getPlayer();
+      players.remove(player.getUniqueId());
+   }
+
+   /**
+    * Stop when the plugin is disabled, so the wrappers don't outlive it
+    *
+    * @param event disable event
+    */
+   @EventHandler(priority = EventPriority.MONITOR)
+   public void onPluginDisable(PluginDisableEvent event) {
+      if (event.getPlugin() == plugin) stop();
+   }
+
+}
@@ -0,0 +1,340 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.bfu4.bonk.scheduler;
+
+import com.github.bfu4.bonk.PluginBase;
+import com.github.bfu4.bonk.utility.LatencyHistogram;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * TickScheduler - Runs work on the main thread, a few milliseconds per tick
+ * <p>
+ * Every tick the scheduler runs queued work until its budget is used up, and carries the rest over
+ * to the next tick. Work is taken by priority first; jobs of the same priority take turns, a step
+ * at a time. Large jobs, like resetting a region, should be submitted as a {@link WorkUnit} doing
+ * a bit of the job per step, so they spread over as many ticks as they need without freezing the server.
+ * <p>
+ * Work can be submitted from any thread, and always runs on the main thread. The scheduler stops
+ * when its plugin is disabled, cancelling the work that is still queued. Work submitted while the
+ * scheduler isn't running, like from {@link PluginBase#onDisable()}, fails right away.
+ */
+public class TickScheduler implements Listener {
+
+   private final PluginBase plugin;
+   private final Queue<Job>[] queues;
+   private final AtomicInteger pending;
+   private final LatencyHistogram tickTimes;
+   private volatile long budgetNanos;
+   private volatile long lastTickNanos;
+   private volatile BukkitTask task;
+
+   /**
+    * Create a scheduler
+    *
+    * @param plugin plugin to run the work for
+    * @param budget time the work may take each tick
+    * @param unit unit of the budget
+    */
+   @SuppressWarnings("unchecked")
+   public TickScheduler(PluginBase plugin, long budget, TimeUnit unit) {
+      this.plugin = plugin;
+      this.queues = (Queue<Job>[]) new Queue<?>[Priority.values().length];
+      for (int i = 0; i < queues.length; i++) {
+         queues[i] = new ConcurrentLinkedQueue<>();
+      }
+      this.pending = new AtomicInteger();
+      this.tickTimes = new LatencyHistogram();
+      setBudget(budget, unit);
+   }
+
+   /**
+    * Start running work every tick
+    */
+   public synchronized void start() {
+      if (task != null) return;
+      task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::tick, 1, 1);
+      // Internal, kept out of the plugin's named listeners
+      plugin.getServer().getPluginManager().registerEvents(this, plugin);
+   }
+
+   /**
+    * Stop running work, cancelling everything that is still queued
+    */
+   public synchronized void stop() {
+      if (task != null) {
+         task.cancel();
+         task = null;
+         HandlerList.unregisterAll(this);
+      }
+      for (Queue<Job> queue : queues) {
+         Job job;
+         while ((job = queue.poll()) != null) {
+            job.future.cancel(false);
+            pending.decrementAndGet();
+         }
+      }
+   }
+
+   /**
+    * Check whether the scheduler runs work every tick
+    *
+    * @return true between {@link TickScheduler#start()} and {@link TickScheduler#stop()}
+    */
+   public boolean isRunning() { return task != null; }
+
+   /**
+    * Stop when the plugin is disabled, so queued work doesn't outlive it
+    *
+    * @param event disable event
+    */
+   @EventHandler(priority = EventPriority.MONITOR)
+   public void onPluginDisable(PluginDisableEvent event) {
+      if (event.getPlugin() == plugin) stop();
+   }
+
+   /**
+    * Set the time the work may take each tick
+    *
+    * @param budget budget
+    * @param unit unit of the budget
+    */
+   public void setBudget(long budget, TimeUnit unit) {
+      this.budgetNanos = Math.max(0, unit.toNanos(budget));
+   }
+
+   /**
+    * Get the time the work may take each tick
+    *
+    * @param unit unit to return the budget in
+    * @return budget
+    */
+   public long getBudget(TimeUnit unit) { return unit.convert(budgetNanos, TimeUnit.NANOSECONDS); }
+
+   /**
+    * Queue a job split into steps
+    *
+    * @param priority priority of the job
+    * @param work job to run
+    * @return future completed once the job is done, exceptionally if a step failed. Cancelling it stops the job.
+    */
+   public CompletableFuture<Void> submit(Priority priority, WorkUnit work) {
+      CompletableFuture<Void> future = new CompletableFuture<>();
+      enqueue(priority, work, future);
+      return future;
+   }
+
+   /**
+    * Queue a job split into steps, with {@link Priority#NORMAL}
+    *
+    * @param work job to run
+    * @return future completed once the job is done, exceptionally if a step failed. Cancelling it stops the job.
+    */
+   public CompletableFuture<Void> submit(WorkUnit work) {
+      return submit(Priority.NORMAL, work);
+   }
+
+   /**
+    * Queue a batch of tasks, run one task per step
+    *
+    * @param priority priority of the batch
+    * @param tasks tasks to run
+    * @return future completed once every task ran, exceptionally if a task failed. Cancelling it skips the remaining tasks.
+    */
+   public CompletableFuture<Void> submitAll(Priority priority, Iterable<? extends Runnable> tasks) {
+      Iterator<? extends Runnable> iterator = tasks.iterator();
+      return submit(priority, () -> {
+         if (iterator.hasNext()) iterator.next().run();
+         return iterator.hasNext();
+      });
+   }
+
+   /**
+    * Queue a task
+    *
+    * @param priority priority of the task
+    * @param task task to run
+    * @return future completed once the task ran, exceptionally if it failed
+    */
+   public CompletableFuture<Void> execute(Priority priority, Runnable task) {
+      return submit(priority, () -> {
+         task.run();
+         return false;
+      });
+   }
+
+   /**
+    * Queue a task computing a value
+    *
+    * @param priority priority of the task
+    * @param task task to run
+    * @param <T> type of the value
+    * @return future completed with the value, exceptionally if the task failed
+    */
+   public <T> CompletableFuture<T> supply(Priority priority, Supplier<T> task) {
+      CompletableFuture<T> future = new CompletableFuture<>();
+      enqueue(priority, () -> {
+         future.complete(task.get());
+         return false;
+      }, future);
+      return future;
+   }
+
+   /**
+    * Get the amount of jobs waiting to run or to finish
+    *
+    * @return pending jobs
+    */
+   public int getPending() { return pending.get(); }
+
+   /**
+    * Get the time the work took in the last tick that had any
+    *
+    * @param unit unit to return the time in
+    * @return time of the last tick
+    */
+   public long getLastTickTime(TimeUnit unit) { return unit.convert(lastTickNanos, TimeUnit.NANOSECONDS); }
+
+   /**
+    * Get the share of the budget the last tick with work used. Above 1 if a step ran over the budget.
+    *
+    * @return used share of the budget
+    */
+   public double getLastTickUsage() {
+      long budget = budgetNanos;
+      return budget == 0 ? 0 : (double) lastTickNanos / budget;
+   }
+
+   /**
+    * Get the time the work took in each tick that had any
+    *
+    * @return histogram of tick times in nanoseconds
+    */
+   public LatencyHistogram getTickTimes() { return tickTimes; }
+
+   private void enqueue(Priority priority, WorkUnit work, CompletableFuture<?> future) {
+      if (!offer(new Job(priority, work, future), true)) {
+         future.completeExceptionally(new IllegalStateException("The tick scheduler of " + plugin.getName() + " is not running"));
+      }
+   }
+
+   /**
+    * Queue a job, unless the scheduler stopped. Checked under the monitor of {@link TickScheduler#stop()},
+    * so nothing is queued after it cancelled the queues.
+    *
+    * @param job job to queue
+    * @param added whether the job is new, rather than put back after a step
+    * @return false if the scheduler isn't running
+    */
+   private synchronized boolean offer(Job job, boolean added) {
+      if (task == null) return false;
+      if (added) pending.incrementAndGet();
+      queues[job.priority.ordinal()].add(job);
+      return true;
+   }
+
+   private void tick() {
+      long start = System.nanoTime();
+      long budget = budgetNanos;
+      boolean ran = false;
+      Job job;
+      while ((job = poll()) != null) {
+         ran = true;
+         boolean more = false;
+         if (!job.future.isDone()) {
+            try {
+               more = job.work.run();
+            } catch (RuntimeException e) {
+               job.future.completeExceptionally(e);
+            }
+         }
+         if (more && !job.future.isDone()) {
+            if (!offer(job, false)) {
+               job.future.cancel(false);
+               pending.decrementAndGet();
+            }
+         } else {
+            job.complete();
+            pending.decrementAndGet();
+         }
+         if (System.nanoTime() - start >= budget) break;
+      }
+
+      if (!ran) return;
+      long used = System.nanoTime() - start;
+      lastTickNanos = used;
+      tickTimes.record(used);
+   }
+
+   private Job poll() {
+      for (Queue<Job> queue : queues) {
+         Job job = queue.poll();
+         if (job != null) return job;
+      }
+      return null;
+   }
+
+   /**
+    * Priority of queued work. Work of a higher priority always runs first.
+    */
+   public enum Priority {
+      HIGH,
+      NORMAL,
+      LOW
+   }
+
+   private static final class Job {
+
+      private final Priority priority;
+      private final WorkUnit work;
+      private final CompletableFuture<?> future;
+
+      private Job(Priority priority, WorkUnit work, CompletableFuture<?> future) {
+         this.priority = priority;
+         this.work = work;
+         this.future = future;
+      }
+
+      @SuppressWarnings("unchecked")
+      private void complete() {
+         // Futures of supplied values are already completed, so this only ends submitted jobs
+         ((CompletableFuture<Object>) future).complete(null);
+      }
+
+   }
+
+}
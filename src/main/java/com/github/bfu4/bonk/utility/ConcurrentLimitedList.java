@@ -0,0 +1,159 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.bfu4.bonk.utility;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Rotating list with size limitations for many concurrent writers.
+ * <p>
+ * Writers never take a lock or wait for each other: each {@link ConcurrentLimitedList#add(Object)}
+ * claims the next sequence number atomically and swaps a node holding the element and its sequence
+ * number into the matching ring slot with a CAS. A writer that was so slow that a newer element
+ * already took its slot drops its element, which would have been evicted by then anyway. Readers
+ * take {@link ConcurrentLimitedList#snapshot()}s, which never block writers; elements still being
+ * written while a snapshot is taken are left out of it rather than waited on.
+ *
+ * @param <E> Element Type
+ */
+public class ConcurrentLimitedList<E> {
+
+   private final int maxSize;
+   private final int mask;
+
+   /**
+    * Element currently stored in each slot, with its sequence number.
+    */
+   private final AtomicReferenceArray<Node<E>> slots;
+
+   /**
+    * Next sequence number to be claimed.
+    */
+   private final AtomicLong sequence;
+
+   /**
+    * Sequence numbers below this one were cleared.
+    */
+   private volatile long floor;
+
+   /**
+    * Create a new list
+    *
+    * @param maxSize max size of the list
+    */
+   public ConcurrentLimitedList(int maxSize) {
+      if (maxSize < 1) throw new IllegalArgumentException("Max size must be at least 1!");
+      this.maxSize = maxSize;
+
+      int capacity = Integer.highestOneBit(maxSize);
+      if (capacity < maxSize) capacity <<= 1;
+      this.mask = capacity - 1;
+
+      this.slots = new AtomicReferenceArray<>(capacity);
+      this.sequence = new AtomicLong();
+   }
+
+   /**
+    * Add an element to the list, evicting the oldest element if the list is full.
+    *
+    * @param element element to add
+    */
+   public void add(E element) {
+      long seq = sequence.getAndIncrement();
+      int slot = (int) (seq & mask);
+      Node<E> node = new Node<>(seq, element);
+      while (true) {
+         Node<E> current = slots.get(slot);
+         // A newer element took the slot already, so this one is evicted
+         if (current != null && current.seq > seq) return;
+         if (slots.compareAndSet(slot, current, node)) return;
+      }
+   }
+
+   /**
+    * Take a consistent snapshot of the list, oldest element first.
+    *
+    * @return elements stored at the time of the call
+    */
+   public List<E> snapshot() {
+      long end = sequence.get();
+      long start = Math.max(floor, end - maxSize);
+      List<E> snapshot = new ArrayList<>((int) (end - start));
+      for (long seq = start; seq < end; seq++) {
+         Node<E> node = slots.get((int) (seq & mask));
+         if (node != null && node.seq == seq) snapshot.add(node.element);
+      }
+      return snapshot;
+   }
+
+   /**
+    * Get the amount of items stored in this list.
+    *
+    * @return amount of items stored in the list, including ones still being written
+    */
+   public int size() {
+      return (int) Math.min(sequence.get() - floor, maxSize);
+   }
+
+   /**
+    * Get the max amount of items this list can hold.
+    *
+    * @return max size
+    */
+   public int getMaxSize() { return maxSize; }
+
+   /**
+    * Clear the entire list. Elements added concurrently with the call may or may not survive it.
+    */
+   public void clear() {
+      long end = sequence.get();
+      floor = end;
+      // Drop the references, leaving elements added since alone
+      for (int i = 0; i < slots.length(); i++) {
+         Node<E> node = slots.get(i);
+         if (node != null && node.seq < end) slots.compareAndSet(i, node, null);
+      }
+   }
+
+   @Override
+   public String toString() {
+      return snapshot().toString();
+   }
+
+   private static final class Node<E> {
+
+      private final long seq;
+      private final E element;
+
+      private Node(long seq, E element) {
+         this.seq = seq;
+         this.element = element;
+      }
+
+   }
+
+}
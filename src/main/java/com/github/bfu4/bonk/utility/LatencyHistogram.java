@@ -0,0 +1,163 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.bfu4.bonk.utility;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram of durations in nanoseconds.
+ * <p>
+ * Values are counted in log-linear buckets: every power of two is split into 8 buckets,
+ * so percentiles are accurate to within 12.5%. Recording is a handful of atomic increments
+ * and never allocates, so it is cheap enough to leave on in production.
+ */
+public class LatencyHistogram {
+
+   private static final int SUB_BUCKET_BITS = 3;
+   private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+   private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+   private final AtomicLongArray buckets;
+   private final LongAdder total;
+   private final AtomicLong max;
+
+   /**
+    * Create a new, empty histogram
+    */
+   public LatencyHistogram() {
+      this.buckets = new AtomicLongArray(BUCKETS);
+      this.total = new LongAdder();
+      this.max = new AtomicLong();
+   }
+
+   /**
+    * Record a duration
+    *
+    * @param nanos duration in nanoseconds, negative values count as 0
+    */
+   public void record(long nanos) {
+      if (nanos < 0) nanos = 0;
+      buckets.incrementAndGet(bucketOf(nanos));
+      total.add(nanos);
+      long current;
+      while (nanos > (current = max.get()) && !max.compareAndSet(current, nanos)) {
+         // Retry until the max is at least this value
+      }
+   }
+
+   /**
+    * Get the amount of recorded durations
+    *
+    * @return count
+    */
+   public long getCount() {
+      long count = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+         count += buckets.get(i);
+      }
+      return count;
+   }
+
+   /**
+    * Get the longest recorded duration
+    *
+    * @return max in nanoseconds, 0 if nothing was recorded
+    */
+   public long getMax() { return max.get(); }
+
+   /**
+    * Get the sum of the recorded durations
+    *
+    * @return total in nanoseconds
+    */
+   public long getTotal() { return total.sum(); }
+
+   /**
+    * Get the mean of the recorded durations
+    *
+    * @return mean in nanoseconds, 0 if nothing was recorded
+    */
+   public double getMean() {
+      long count = getCount();
+      return count == 0 ? 0 : (double) total.sum() / count;
+   }
+
+   /**
+    * Get the duration below which the given percentage of the recorded durations fall
+    *
+    * @param percentile percentile, between 0 and 100
+    * @return upper bound of the bucket holding the percentile in nanoseconds, 0 if nothing was recorded
+    */
+   public long getPercentile(double percentile) {
+      long[] counts = new long[BUCKETS];
+      long count = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+         counts[i] = buckets.get(i);
+         count += counts[i];
+      }
+      if (count == 0) return 0;
+
+      long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * count));
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+         seen += counts[i];
+         if (seen >= rank) return Math.min(upperBoundOf(i), getMax());
+      }
+      return getMax();
+   }
+
+   /**
+    * Forget all recorded durations. Durations recorded concurrently may be partially kept.
+    */
+   public void reset() {
+      for (int i = 0; i < BUCKETS; i++) {
+         buckets.set(i, 0);
+      }
+      total.reset();
+      max.set(0);
+   }
+
+   @Override
+   public String toString() {
+      return String.format("count=%d p50=%dns p99=%dns max=%dns", getCount(), getPercentile(50), getPercentile(99), getMax());
+   }
+
+   private static int bucketOf(long value) {
+      if (value < SUB_BUCKETS) return (int) value;
+      int exponent = 63 - Long.numberOfLeadingZeros(value);
+      int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+      return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+   }
+
+   private static long upperBoundOf(int bucket) {
+      if (bucket < SUB_BUCKETS) return bucket;
+      int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+      long sub = bucket % SUB_BUCKETS;
+      long lower = (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+      return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+   }
+
+}
@@ -0,0 +1,214 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.bfu4.bonk.utility;
+
+import java.util.Arrays;
+
+/**
+ * Rotating list of {@code double}s with size limitations.
+ * <p>
+ * Stores values unboxed and keeps a running sum, minimum and maximum, so
+ * {@link LimitedDoubleList#getSum()}, {@link LimitedDoubleList#getMin()}, {@link LimitedDoubleList#getMax()}
+ * and {@link LimitedDoubleList#getMean()} are O(1) reads, updated in amortized O(1) per add.
+ * The sum is compensated (Kahan-Babuska) so it doesn't drift as values are added and evicted.
+ * NaN and infinite values are counted instead of summed, so the sum recovers once they're evicted.
+ */
+public class LimitedDoubleList extends LimitedPrimitiveList {
+
+   private final double[] values;
+   private double sum;
+
+   /**
+    * Low-order bits lost while summing.
+    */
+   private double compensation;
+
+   /**
+    * Stored NaN, positive infinite and negative infinite values, left out of the sum.
+    */
+   private int nans;
+   private int positiveInfinities;
+   private int negativeInfinities;
+
+   /**
+    * Create a new list
+    *
+    * @param maxSize max size of the list
+    */
+   public LimitedDoubleList(int maxSize) {
+      super(maxSize);
+      this.values = new double[maxSize];
+   }
+
+   /**
+    * Add a value to the list, evicting the oldest value if the list is full.
+    *
+    * @param value value to add
+    */
+   public void add(double value) {
+      synchronized (lock) {
+         int slot = reserve();
+         values[slot] = value;
+         accumulate(value, 1);
+         commit(slot);
+      }
+   }
+
+   /**
+    * Get value from list.
+    *
+    * @param index index of value, 0 being the oldest
+    * @return value
+    * @throws IndexOutOfBoundsException if the index is not within {@link LimitedDoubleList#size()}
+    */
+   public double get(int index) {
+      synchronized (lock) {
+         return values[slotOf(index)];
+      }
+   }
+
+   /**
+    * Get the sum of the stored values.
+    *
+    * @return sum, or 0 if the list is empty
+    */
+   public double getSum() {
+      synchronized (lock) {
+         return total();
+      }
+   }
+
+   /**
+    * Get the smallest stored value.
+    *
+    * @return minimum, or {@link Double#POSITIVE_INFINITY} if the list is empty
+    */
+   public double getMin() {
+      synchronized (lock) {
+         int slot = minSlot();
+         return slot == -1 ? Double.POSITIVE_INFINITY : values[slot];
+      }
+   }
+
+   /**
+    * Get the largest stored value.
+    *
+    * @return maximum, or {@link Double#NEGATIVE_INFINITY} if the list is empty
+    */
+   public double getMax() {
+      synchronized (lock) {
+         int slot = maxSlot();
+         return slot == -1 ? Double.NEGATIVE_INFINITY : values[slot];
+      }
+   }
+
+   /**
+    * Get the arithmetic mean of the stored values.
+    *
+    * @return mean, or 0 if the list is empty
+    */
+   public double getMean() {
+      synchronized (lock) {
+         return size == 0 ? 0.0d : total() / size;
+      }
+   }
+
+   /**
+    * Turn this list into an array.
+    *
+    * @return the values stored in this list, oldest first
+    */
+   public double[] toArray() {
+      synchronized (lock) {
+         double[] array = new double[size];
+         for (int i = 0; i < size; i++) {
+            array[i] = values[slotOf(i)];
+         }
+         return array;
+      }
+   }
+
+   /**
+    * Clear the entire list.
+    */
+   public void clear() {
+      synchronized (lock) {
+         reset();
+         sum = 0;
+         compensation = 0;
+         nans = 0;
+         positiveInfinities = 0;
+         negativeInfinities = 0;
+      }
+   }
+
+   @Override
+   protected int compareSlots(int a, int b) {
+      return Double.compare(values[a], values[b]);
+   }
+
+   @Override
+   protected void evicted(int slot) {
+      accumulate(values[slot], -1);
+   }
+
+   private double total() {
+      if (nans > 0 || positiveInfinities > 0 && negativeInfinities > 0) return Double.NaN;
+      if (positiveInfinities > 0) return Double.POSITIVE_INFINITY;
+      if (negativeInfinities > 0) return Double.NEGATIVE_INFINITY;
+      return sum + compensation;
+   }
+
+   /**
+    * Add a value to the sum, or take it out of it
+    *
+    * @param value value
+    * @param sign 1 to add the value, -1 to take it out
+    */
+   private void accumulate(double value, int sign) {
+      if (Double.isNaN(value)) {
+         nans += sign;
+         return;
+      }
+      if (Double.isInfinite(value)) {
+         if (value > 0) positiveInfinities += sign;
+         else negativeInfinities += sign;
+         return;
+      }
+      value *= sign;
+      double total = sum + value;
+      if (Math.abs(sum) >= Math.abs(value)) {
+         compensation += (sum - total) + value;
+      } else {
+         compensation += (value - total) + sum;
+      }
+      sum = total;
+   }
+
+   @Override
+   public String toString() {
+      return Arrays.toString(toArray());
+   }
+
+}
@@ -0,0 +1,163 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.bfu4.bonk.utility;
+
+import java.util.Arrays;
+
+/**
+ * Rotating list of {@code int}s with size limitations.
+ * <p>
+ * Stores values unboxed and keeps a running sum, minimum and maximum, so
+ * {@link LimitedIntList#getSum()}, {@link LimitedIntList#getMin()}, {@link LimitedIntList#getMax()}
+ * and {@link LimitedIntList#getMean()} are O(1) reads, updated in amortized O(1) per add.
+ */
+public class LimitedIntList extends LimitedPrimitiveList {
+
+   private final int[] values;
+   private long sum;
+
+   /**
+    * Create a new list
+    *
+    * @param maxSize max size of the list
+    */
+   public LimitedIntList(int maxSize) {
+      super(maxSize);
+      this.values = new int[maxSize];
+   }
+
+   /**
+    * Add a value to the list, evicting the oldest value if the list is full.
+    *
+    * @param value value to add
+    */
+   public void add(int value) {
+      synchronized (lock) {
+         int slot = reserve();
+         values[slot] = value;
+         sum += value;
+         commit(slot);
+      }
+   }
+
+   /**
+    * Get value from list.
+    *
+    * @param index index of value, 0 being the oldest
+    * @return value
+    * @throws IndexOutOfBoundsException if the index is not within {@link LimitedIntList#size()}
+    */
+   public int get(int index) {
+      synchronized (lock) {
+         return values[slotOf(index)];
+      }
+   }
+
+   /**
+    * Get the sum of the stored values.
+    *
+    * @return sum, or 0 if the list is empty
+    */
+   public long getSum() {
+      synchronized (lock) {
+         return sum;
+      }
+   }
+
+   /**
+    * Get the smallest stored value.
+    *
+    * @return minimum, or {@link Integer#MAX_VALUE} if the list is empty
+    */
+   public int getMin() {
+      synchronized (lock) {
+         int slot = minSlot();
+         return slot == -1 ? Integer.MAX_VALUE : values[slot];
+      }
+   }
+
+   /**
+    * Get the largest stored value.
+    *
+    * @return maximum, or {@link Integer#MIN_VALUE} if the list is empty
+    */
+   public int getMax() {
+      synchronized (lock) {
+         int slot = maxSlot();
+         return slot == -1 ? Integer.MIN_VALUE : values[slot];
+      }
+   }
+
+   /**
+    * Get the arithmetic mean of the stored values.
+    *
+    * @return mean, or 0 if the list is empty
+    */
+   public double getMean() {
+      synchronized (lock) {
+         return size == 0 ? 0.0d : (double) sum / size;
+      }
+   }
+
+   /**
+    * Turn this list into an array.
+    *
+    * @return the values stored in this list, oldest first
+    */
+   public int[] toArray() {
+      synchronized (lock) {
+         int[] array = new int[size];
+         for (int i = 0; i < size; i++) {
+            array[i] = values[slotOf(i)];
+         }
+         return array;
+      }
+   }
+
+   /**
+    * Clear the entire list.
+    */
+   public void clear() {
+      synchronized (lock) {
+         reset();
+         sum = 0;
+      }
+   }
+
+   @Override
+   protected int compareSlots(int a, int b) {
+      return Integer.compare(values[a], values[b]);
+   }
+
+   @Override
+   protected void evicted(int slot) {
+      sum -= values[slot];
+   }
+
+   @Override
+   public String toString() {
+      return Arrays.toString(toArray());
+   }
+
+}
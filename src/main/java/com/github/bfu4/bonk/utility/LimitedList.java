@@ -28,6 +28,11 @@ import java.util.List;
 
 /**
  * Rotating {@link java.util.ArrayList } with size limitations.
+ * <p>
+ * Backed by a fixed ring buffer, so adding (and evicting the oldest element once full)
+ * and indexed access are O(1) and do not allocate. Every operation holds the list's lock;
+ * for many concurrent writers use {@link ConcurrentLimitedList } instead.
+ *
  * @param <E> Element Type
  */
 public class LimitedList<E> {
@@ -35,6 +40,21 @@ public class LimitedList<E> {
    private int maxSize;
    private Object[] elements;
 
+   /**
+    * Index of the oldest element.
+    */
+   private int head;
+
+   /**
+    * Index the next element will be written to.
+    */
+   private int tail;
+
+   /**
+    * Amount of elements stored.
+    */
+   private int size;
+
    private final Object lock;
 
    /**
@@ -43,10 +63,10 @@ public class LimitedList<E> {
     * @param maxSize max size of the list
     */
    public LimitedList(int maxSize) {
-      this.maxSize = maxSize;
+      this.maxSize = Math.max(maxSize, 0);
       this.lock = new Object();
 
-      elements = new Object[0];
+      elements = new Object[this.maxSize];
    }
 
    /**
@@ -57,21 +77,36 @@ public class LimitedList<E> {
     * @throws IndexOutOfBoundsException if the index is larger than the dynamic {@link LimitedList#size()}
     */
    public void set(int index, E element) throws IndexOutOfBoundsException {
-      if (elements.length == 0) {
-         elements = new Object[1];
-         elements[0] = element;
-      } else {
-         if (index != elements.length && index < elements.length) {
-            elements[index] = element;
-            return;
+      synchronized (lock) {
+         if (size == 0) {
+            add(element);
+         } else {
+            if (index >= 0 && index < size) {
+               elements[physicalIndex(index)] = element;
+               return;
+            }
+            throw new IndexOutOfBoundsException("Index is larger than the current length of the dynamic LimitedList!");
          }
-         throw new IndexOutOfBoundsException("Index is larger than the current length of the dynamic LimitedList!");
       }
    }
 
+   /**
+    * Set the max size of the list, keeping the newest elements if it shrinks.
+    *
+    * @param newSize new max size
+    */
    public void setMaxSize(int newSize) {
       synchronized (lock) {
-         this.maxSize = newSize;
+         newSize = Math.max(newSize, 0);
+         if (newSize == maxSize) return;
+         int kept = Math.min(size, newSize);
+         Object[] resized = new Object[newSize];
+         copyOrdered(size - kept, resized, kept);
+         elements = resized;
+         maxSize = newSize;
+         size = kept;
+         head = 0;
+         tail = newSize == 0 ? 0 : kept % newSize;
       }
    }
 
@@ -82,22 +117,14 @@ public class LimitedList<E> {
     */
    public void add(E element) {
       synchronized (lock) {
-         if (elements.length == maxSize) {
-            // Scoot objects over
-            for (int i = 1; i < elements.length; i++) {
-               elements[i - 1] = elements[i];
-            }
-            elements[maxSize - 1] = element;
+         if (maxSize == 0) return;
+         elements[tail] = element;
+         if (++tail == maxSize) tail = 0;
+         if (size == maxSize) {
+            // Full, the oldest element was just overwritten
+            head = tail;
          } else {
-            int maxRealloc = (elements.length >= 1) ? elements.length + 1 : 1;
-            Object[] tempArray = new Object[maxRealloc];
-
-            for (int i = 0; i < elements.length; i ++) {
-               tempArray[i] = elements[i];
-            }
-
-            tempArray[maxRealloc - 1] = element;
-            elements = tempArray;
+            size++;
          }
       }
    }
@@ -112,8 +139,13 @@ public class LimitedList<E> {
          int index = indexOf(element);
          if (index == -1) return;
 
-         elements[index] = null;
-         shiftOverNull();
+         // Close the gap by moving the newer elements back one slot
+         for (int i = index; i < size - 1; i++) {
+            elements[physicalIndex(i)] = elements[physicalIndex(i + 1)];
+         }
+         tail = (tail == 0 ? maxSize : tail) - 1;
+         elements[tail] = null;
+         size--;
       }
    }
 
@@ -122,10 +154,16 @@ public class LimitedList<E> {
     *
     * @param index index of element
     * @return element
+    * @throws IndexOutOfBoundsException if the index is not within {@link LimitedList#size()}
     */
    @SuppressWarnings("unchecked")
    public E get(int index) {
-      return (E) elements[index];
+      synchronized (lock) {
+         if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+         }
+         return (E) elements[physicalIndex(index)];
+      }
    }
 
    /**
@@ -135,15 +173,18 @@ public class LimitedList<E> {
     * @return index of the element, or -1 if not found.
     */
    public int indexOf(E element) {
-      int index = -1;
-      for (int i = 0; i < elements.length; i ++) {
-         if (elements[i] == null) continue;
-         if (elements[i].equals(element)) {
-            index = i;
-            break;
+      synchronized (lock) {
+         int index = -1;
+         for (int i = 0; i < size; i ++) {
+            Object current = elements[physicalIndex(i)];
+            if (current == null) continue;
+            if (current.equals(element)) {
+               index = i;
+               break;
+            }
          }
+         return index;
       }
-      return index;
    }
 
    /**
@@ -156,35 +197,37 @@ public class LimitedList<E> {
    @Deprecated
    @Unsafe
    public E[] toArray() {
-      return (E[]) elements;
+      synchronized (lock) {
+         Object[] array = new Object[size];
+         copyOrdered(0, array, size);
+         return (E[]) array;
+      }
    }
 
    /**
-    * Shift over null values.
+    * Map a logical index (0 being the oldest element) to its slot in the backing array.
+    *
+    * @param index logical index
+    * @return index in the backing array
     */
-   private void shiftOverNull() {
-      Object[] newArray = new Object[elements.length - nullElementAmount()];
-      int currentIndex = 0;
-      for (Object element: elements) {
-         if (element != null) {
-            newArray[currentIndex] = element;
-            currentIndex ++;
-         }
-      }
-      elements = newArray;
+   private int physicalIndex(int index) {
+      int physical = head + index;
+      return physical >= maxSize ? physical - maxSize : physical;
    }
 
    /**
-    * Get the amount of null elements
+    * Copy elements in insertion order into the start of the given array.
     *
-    * @return amount of elements null
+    * @param from logical index to start copying from
+    * @param dest array to copy into
+    * @param length amount of elements to copy
     */
-   private int nullElementAmount() {
-      int amount = 0;
-      for (Object element : elements) {
-         if (element == null) amount++;
-      }
-      return amount;
+   private void copyOrdered(int from, Object[] dest, int length) {
+      if (length == 0) return;
+      int start = physicalIndex(from);
+      int firstPart = Math.min(length, maxSize - start);
+      System.arraycopy(elements, start, dest, 0, firstPart);
+      System.arraycopy(elements, 0, dest, firstPart, length - firstPart);
    }
 
    /**
@@ -192,18 +235,30 @@ public class LimitedList<E> {
     *
     * @return amount of items stored in the list
     */
-   public int size() { return elements.length; }
+   public int size() { return size; }
+
+   /**
+    * Get the max amount of items this list can hold.
+    *
+    * @return max size
+    */
+   public int getMaxSize() { return maxSize; }
 
    /**
     * Clear the entire list.
     */
    public void clear() {
-      elements = new Object[0];
+      synchronized (lock) {
+         Arrays.fill(elements, null);
+         head = 0;
+         tail = 0;
+         size = 0;
+      }
    }
 
    @Override
    public String toString() {
-      return Arrays.toString(elements);
+      return Arrays.toString(toArray());
    }
 
    /**
@@ -215,4 +270,4 @@ public class LimitedList<E> {
       return Arrays.asList(toArray());
    }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,198 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2021 bfu4
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.bfu4.bonk.utility;
+
+/**
+ * Ring buffer bookkeeping shared by the primitive {@link LimitedList } variants.
+ * <p>
+ * Keeps track of which slot is the oldest and maintains two monotonic queues of slots,
+ * so the minimum and maximum of the stored values are known in amortized O(1) per
+ * insert and eviction. Subclasses own the value array and the running sum.
+ */
+abstract class LimitedPrimitiveList {
+
+   protected final int maxSize;
+   protected final Object lock;
+
+   /**
+    * Slot of the oldest value.
+    */
+   protected int head;
+
+   /**
+    * Amount of values stored.
+    */
+   protected int size;
+
+   /**
+    * Slots in ascending value order, front being the slot of the minimum.
+    */
+   private final int[] minQueue;
+   private int minHead;
+   private int minCount;
+
+   /**
+    * Slots in descending value order, front being the slot of the maximum.
+    */
+   private final int[] maxQueue;
+   private int maxHead;
+   private int maxCount;
+
+   /**
+    * Create a new list
+    *
+    * @param maxSize max size of the list
+    */
+   LimitedPrimitiveList(int maxSize) {
+      if (maxSize < 1) throw new IllegalArgumentException("Max size must be at least 1!");
+      this.maxSize = maxSize;
+      this.lock = new Object();
+      this.minQueue = new int[maxSize];
+      this.maxQueue = new int[maxSize];
+   }
+
+   /**
+    * Compare the values stored in two slots.
+    *
+    * @param a first slot
+    * @param b second slot
+    * @return negative, zero or positive as the value in a is less than, equal to or greater than the one in b
+    */
+   protected abstract int compareSlots(int a, int b);
+
+   /**
+    * Called before the value in a slot is overwritten, to take it out of the running sum.
+    *
+    * @param slot slot of the value being evicted
+    */
+   protected abstract void evicted(int slot);
+
+   /**
+    * Reserve the slot for the next value, evicting the oldest one if the list is full.
+    * The caller has to write the value and then call {@link LimitedPrimitiveList#commit(int)}.
+    *
+    * @return slot to write to
+    */
+   protected int reserve() {
+      if (size == maxSize) {
+         int slot = head;
+         evicted(slot);
+         if (minQueue[minHead] == slot) {
+            minHead = next(minHead);
+            minCount--;
+         }
+         if (maxQueue[maxHead] == slot) {
+            maxHead = next(maxHead);
+            maxCount--;
+         }
+         if (++head == maxSize) head = 0;
+         return slot;
+      }
+      int slot = head + size;
+      size++;
+      return slot >= maxSize ? slot - maxSize : slot;
+   }
+
+   /**
+    * Account for a newly written value in the min/max queues.
+    *
+    * @param slot slot the value was written to
+    */
+   protected void commit(int slot) {
+      while (minCount > 0 && compareSlots(minQueue[last(minHead, minCount)], slot) >= 0) minCount--;
+      minQueue[last(minHead, ++minCount)] = slot;
+
+      while (maxCount > 0 && compareSlots(maxQueue[last(maxHead, maxCount)], slot) <= 0) maxCount--;
+      maxQueue[last(maxHead, ++maxCount)] = slot;
+   }
+
+   /**
+    * Get the slot of the minimum value.
+    *
+    * @return slot, or -1 if the list is empty
+    */
+   protected int minSlot() { return minCount == 0 ? -1 : minQueue[minHead]; }
+
+   /**
+    * Get the slot of the maximum value.
+    *
+    * @return slot, or -1 if the list is empty
+    */
+   protected int maxSlot() { return maxCount == 0 ? -1 : maxQueue[maxHead]; }
+
+   /**
+    * Map a logical index (0 being the oldest value) to its slot.
+    *
+    * @param index logical index
+    * @return slot
+    * @throws IndexOutOfBoundsException if the index is not within {@link LimitedPrimitiveList#size()}
+    */
+   protected int slotOf(int index) {
+      if (index < 0 || index >= size) {
+         throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      }
+      int slot = head + index;
+      return slot >= maxSize ? slot - maxSize : slot;
+   }
+
+   /**
+    * Reset the bookkeeping. Subclasses reset their running sum themselves.
+    */
+   protected void reset() {
+      head = 0;
+      size = 0;
+      minHead = 0;
+      minCount = 0;
+      maxHead = 0;
+      maxCount = 0;
+   }
+
+   /**
+    * Get the amount of values stored in this list.
+    *
+    * @return amount of values stored in the list
+    */
+   public int size() {
+      synchronized (lock) {
+         return size;
+      }
+   }
+
+   /**
+    * Get the max amount of values this list can hold.
+    *
+    * @return max size
+    */
+   public int getMaxSize() { return maxSize; }
+
+   private int next(int index) {
+      return ++index == maxSize ? 0 : index;
+   }
+
+   private int last(int queueHead, int queueCount) {
+      int index = queueHead + queueCount - 1;
+      return index >= maxSize ? index - maxSize : index;
+   }
+
+}